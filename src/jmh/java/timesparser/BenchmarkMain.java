@@ -0,0 +1,42 @@
+package timesparser;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks like JMH's own main, but always with the GC profiler so allocation rates are reported
+ * alongside throughput. Takes the usual JMH command line options, and leaves help, the listing options and bad
+ * options to JMH's main.
+ */
+public class BenchmarkMain {
+	public static void main(String[] args) throws IOException, RunnerException {
+		CommandLineOptions commandLine;
+		try {
+			commandLine = new CommandLineOptions(args);
+		}
+		catch (CommandLineOptionException e) {
+			Main.main(args);
+			return;
+		}
+
+		if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+				|| commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+			Main.main(args);
+			return;
+		}
+
+		Options options = new OptionsBuilder()
+			.parent(commandLine)
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
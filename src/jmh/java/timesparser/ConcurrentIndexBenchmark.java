@@ -0,0 +1,92 @@
+package timesparser;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Queries against a ConcurrentWeekIntervalsIndex while another thread keeps updating venues, and without the
+ * updates for comparison.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentIndexBenchmark {
+	@Param({"1000", "10000"})
+	public int venueCount;
+
+	private WeekIntervals[] schedules;
+	private ConcurrentWeekIntervalsIndex<Integer> index;
+
+	@Setup
+	public void setUp() {
+		String[] descriptions = Corpus.generate("long", 64, 42);
+		this.schedules = new WeekIntervals[descriptions.length];
+		for (int i=0;i<descriptions.length;i++) {
+			this.schedules[i] = TimeExtractor.parseTimes(descriptions[i]).otherwise(new WeekIntervals());
+		}
+
+		Map<Integer, WeekIntervals> venues = new HashMap<Integer, WeekIntervals>();
+		for (int venue=0;venue<this.venueCount;venue++) {
+			venues.put(venue, this.schedules[venue % this.schedules.length]);
+		}
+		this.index = new ConcurrentWeekIntervalsIndex<Integer>(venues);
+	}
+
+	/**
+	 * Each thread's own position in the week and the venues.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		private final Random random = new Random();
+
+		public int nextMinute() {
+			return this.random.nextInt(WeekIntervals.MINUTES_PER_WEEK);
+		}
+
+		public int nextIndex(int bound) {
+			return this.random.nextInt(bound);
+		}
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(3)
+	public List<Integer> read(Cursor cursor) {
+		return this.index.openAt(cursor.nextMinute());
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(1)
+	public void write(Cursor cursor) {
+		int venue = cursor.nextIndex(this.venueCount);
+		this.index.upsert(venue, this.schedules[cursor.nextIndex(this.schedules.length)]);
+	}
+
+	@Benchmark
+	@Group("readOnly")
+	@GroupThreads(3)
+	public List<Integer> readOnly(Cursor cursor) {
+		return this.index.openAt(cursor.nextMinute());
+	}
+}
@@ -0,0 +1,65 @@
+package timesparser;
+
+import java.util.Random;
+
+/**
+ * Generates realistic opening hours descriptions for the benchmarks. The same seed always gives the same corpus.
+ */
+/* package */ class Corpus {
+	private static final String[] days = {"Mon", "Tue", "Wed", "Thur", "Fri", "Sat", "Sun", "Monday", "Friday", "Saturday"};
+	private static final String[] times = {"9-5pm", "11am-2:30pm", "5-10pm", "7:30am-11pm", "11am-2am", "10-12am",
+		"8:30am-5:30pm", "12-3pm", "6pm-1", "closed"};
+	private static final String[] noise = {"call for hours", "see website", "Open most days, ring ahead on 0412 345 678",
+		"Hours vary by season", "By appointment only", "Temporarily closed for renovations until 2025",
+		"Kitchen closes 30 mins before close", "Open late on game nights!!"};
+
+	/**
+	 * Utility class
+	 */
+	private Corpus() {}
+
+	/**
+	 * @param kind short ("Mon-Fri 9-5pm"), long (several days with lunch and dinner sittings), malformed (free text
+	 *             which doesn't parse) or manyCommas (dozens of comma separated chunks).
+	 * @param count How many descriptions to make.
+	 */
+	public static String[] generate(String kind, int count, long seed) {
+		Random random = new Random(seed);
+		String[] result = new String[count];
+		for (int i=0;i<count;i++) {
+			if ("short".equals(kind)) {
+				result[i] = dayRange(random) + " " + pick(random, times);
+			}
+			else if ("long".equals(kind)) {
+				result[i] = dayRange(random) + " lunch " + pick(random, times) + ", dinner " + pick(random, times)
+					+ ", " + pick(random, days) + " " + pick(random, times) + " (kitchen closes early), "
+					+ dayRange(random) + " " + pick(random, times) + ", public holidays closed";
+			}
+			else if ("malformed".equals(kind)) {
+				result[i] = pick(random, noise);
+			}
+			else if ("manyCommas".equals(kind)) {
+				StringBuilder description = new StringBuilder(dayRange(random));
+				for (int chunk=0;chunk<40;chunk++) {
+					description.append(' ').append(pick(random, times)).append(',');
+					if (random.nextInt(3) == 0) {
+						description.append(' ').append(pick(random, days));
+					}
+				}
+				result[i] = description.append(' ').append(pick(random, times)).toString();
+			}
+			else {
+				throw new IllegalArgumentException("Unknown corpus " + kind);
+			}
+		}
+		return result;
+	}
+
+	private static String dayRange(Random random) {
+		return random.nextBoolean() ? "Daily" : pick(random, days) + "-" + pick(random, days);
+	}
+
+	private static String pick(Random random, String[] choices) {
+		return choices[random.nextInt(choices.length)];
+	}
+}
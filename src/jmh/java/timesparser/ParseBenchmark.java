@@ -0,0 +1,55 @@
+package timesparser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import timesparser.TimeDescriptionParser.TimeDescriptionElement;
+
+/**
+ * Tokenizing and full parsing throughput over each kind of generated corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+	@Param({"short", "long", "malformed", "manyCommas"})
+	public String corpus;
+
+	private String[] inputs;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		this.inputs = Corpus.generate(this.corpus, 1024, 42);
+	}
+
+	private String nextInput() {
+		this.next = (this.next + 1) & (this.inputs.length - 1);
+		return this.inputs[this.next];
+	}
+
+	@Benchmark
+	public List<TimeDescriptionElement> tokenize() {
+		return TimeDescriptionParser.parse(this.nextInput());
+	}
+
+	@Benchmark
+	public Maybe<WeekIntervals> parseTimes() {
+		return TimeExtractor.parseTimes(this.nextInput());
+	}
+}
@@ -0,0 +1,115 @@
+package timesparser;
+
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import timesparser.WeekIntervals.DayLocalInterval;
+
+/**
+ * Building schedules of growing sizes, and querying them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeekIntervalsBenchmark {
+	private static final int PROBES = 1024;
+
+	@Param({"4", "16", "64", "256"})
+	public int intervalCount;
+
+	private DayLocalInterval[] intervals;
+	private WeekIntervals schedule;
+	private int[] minutes;
+	private Calendar[] calendars;
+	private long[] epochMillis;
+	private ZoneId zone;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+
+		// Evenly spread, non-overlapping intervals, added in a random order
+		int slot = WeekIntervals.MINUTES_PER_WEEK / this.intervalCount;
+		this.intervals = new DayLocalInterval[this.intervalCount];
+		for (int i=0;i<this.intervalCount;i++) {
+			int start = i * slot;
+			int dayEnd = (start / WeekIntervals.MINUTES_PER_DAY + 1) * WeekIntervals.MINUTES_PER_DAY - 1;
+			this.intervals[i] = DayLocalInterval.fromMinutesOfWeek(start, Math.min(start + slot / 2, dayEnd));
+		}
+		for (int i=this.intervals.length - 1;i>0;i--) {
+			int j = random.nextInt(i + 1);
+			DayLocalInterval swap = this.intervals[i];
+			this.intervals[i] = this.intervals[j];
+			this.intervals[j] = swap;
+		}
+		this.schedule = this.add();
+
+		this.zone = ZoneId.of("Australia/Sydney");
+		this.minutes = new int[PROBES];
+		this.calendars = new Calendar[PROBES];
+		this.epochMillis = new long[PROBES];
+		long start = System.currentTimeMillis();
+		for (int i=0;i<PROBES;i++) {
+			this.epochMillis[i] = start + (long) random.nextInt(7 * 24 * 60) * 60000L;
+			this.calendars[i] = Calendar.getInstance();
+			this.calendars[i].setTimeInMillis(this.epochMillis[i]);
+			this.minutes[i] = WeekIntervals.minuteOfWeek(this.calendars[i]);
+		}
+	}
+
+	private int nextProbe() {
+		this.next = (this.next + 1) & (PROBES - 1);
+		return this.next;
+	}
+
+	@Benchmark
+	public WeekIntervals add() {
+		WeekIntervals result = new WeekIntervals();
+		for (DayLocalInterval interval : this.intervals) {
+			result = result.add(interval);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public WeekIntervals build() {
+		WeekIntervals.Builder builder = new WeekIntervals.Builder();
+		for (DayLocalInterval interval : this.intervals) {
+			builder.add(interval);
+		}
+		return builder.build();
+	}
+
+	@Benchmark
+	public boolean containsMinuteOfWeek() {
+		return this.schedule.contains(this.minutes[this.nextProbe()]);
+	}
+
+	@Benchmark
+	public boolean containsCalendar() {
+		return this.schedule.contains(this.calendars[this.nextProbe()]);
+	}
+
+	@Benchmark
+	public boolean containsEpochMillis() {
+		return this.schedule.contains(this.epochMillis[this.nextProbe()], this.zone);
+	}
+}
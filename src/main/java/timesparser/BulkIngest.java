@@ -0,0 +1,290 @@
+package timesparser;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parses a large file of venueId&lt;TAB&gt;hours lines, one venue per line, and passes each result to a sink.
+ *
+ * The file is split into chunks on line boundaries and each chunk is memory mapped and parsed in place by a pool of
+ * worker threads, so ASCII hours text is never copied into Strings. Lines may end with \n or \r\n, and the file is
+ * expected to be ASCII or UTF-8. Hours with non-ASCII characters are decoded into a String before parsing, so they
+ * parse just like they would from the decoded file.
+ *
+ * Run it from the command line as: java timesparser.BulkIngest hours.tsv [threads]
+ */
+public class BulkIngest {
+	private static final int MIN_CHUNK_SIZE = 1 << 20;
+	private static final int MAX_CHUNK_SIZE = 64 << 20;
+
+	/**
+	 * Utility class
+	 */
+	private BulkIngest() {}
+
+	/**
+	 * Receives the parsed lines. Called from several worker threads at once, and in no particular order.
+	 */
+	public interface ResultSink {
+		void accept(String venueId, Maybe<WeekIntervals> result);
+	}
+
+	/**
+	 * Counters for an ingest run.
+	 */
+	public static class Stats {
+		private final LongAdder lines = new LongAdder();
+		private final LongAdder parsed = new LongAdder();
+		private final LongAdder failed = new LongAdder();
+		private final LongAdder malformed = new LongAdder();
+		private long bytes;
+		private long elapsedNanos;
+
+		/**
+		 * @return Lines containing a tab, whether or not their hours parsed.
+		 */
+		public long getLines() {
+			return this.lines.sum();
+		}
+
+		public long getParsed() {
+			return this.parsed.sum();
+		}
+
+		public long getFailed() {
+			return this.failed.sum();
+		}
+
+		/**
+		 * @return Non-empty lines without a tab, which are skipped.
+		 */
+		public long getMalformed() {
+			return this.malformed.sum();
+		}
+
+		public long getBytes() {
+			return this.bytes;
+		}
+
+		public long getElapsedNanos() {
+			return this.elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			double seconds = Math.max(this.elapsedNanos, 1) / 1e9;
+			return String.format("%d lines (%d parsed, %d failed, %d malformed), %d bytes in %.2fs: %.0f lines/s, %.1f MB/s",
+					this.getLines(), this.getParsed(), this.getFailed(), this.getMalformed(), this.bytes, seconds,
+					this.getLines() / seconds, this.bytes / seconds / (1 << 20));
+		}
+	}
+
+	/**
+	 * Parses every line of the file on a pool of the given number of threads.
+	 *
+	 * @param file A file of venueId&lt;TAB&gt;hours lines.
+	 * @param sink Where to send each result, must be thread safe.
+	 * @param threads How many worker threads to parse with.
+	 * @return Counters for the run.
+	 */
+	public static Stats ingest(Path file, ResultSink sink, int threads) throws IOException {
+		return ingest(file, sink, threads, 0);
+	}
+
+	/**
+	 * @param chunkSize Approximate chunk size in bytes, or 0 to pick one based on the file size.
+	 */
+	/* package */ static Stats ingest(Path file, ResultSink sink, int threads, int chunkSize) throws IOException {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be positive, got " + threads);
+		}
+
+		long startTime = System.nanoTime();
+		Stats stats = new Stats();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (chunkSize <= 0) {
+				long perThread = size / (threads * 4L);
+				chunkSize = (int) Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, perThread));
+			}
+
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			long chunkStart = 0;
+			while (chunkStart < size) {
+				long chunkEnd = findLineEnd(channel, Math.min(size, chunkStart + chunkSize), size);
+				results.add(executor.submit(new ChunkTask(channel, chunkStart, chunkEnd, sink, stats)));
+				chunkStart = chunkEnd;
+			}
+
+			for (Future<Void> result : results) {
+				result.get();
+			}
+			stats.bytes = size;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while ingesting " + file, e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		stats.elapsedNanos = System.nanoTime() - startTime;
+		return stats;
+	}
+
+	/**
+	 * @return The offset just after the first newline at or after position, or size if there isn't one.
+	 */
+	private static long findLineEnd(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i=0;i<read;i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Maps one chunk of whole lines and parses them.
+	 */
+	private static class ChunkTask implements Callable<Void> {
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final ResultSink sink;
+		private final Stats stats;
+
+		public ChunkTask(FileChannel channel, long start, long end, ResultSink sink, Stats stats) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.sink = sink;
+			this.stats = stats;
+		}
+
+		public Void call() throws IOException {
+			MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.start, this.end - this.start);
+			int limit = buffer.limit();
+			CharSequence text = new ByteBufferCharSequence(buffer, 0, limit);
+
+			int lineStart = 0;
+			while (lineStart < limit) {
+				int lineEnd = lineStart;
+				int tab = -1;
+				boolean ascii = true;
+				byte b;
+				while (lineEnd < limit && (b = buffer.get(lineEnd)) != '\n') {
+					if (tab < 0 && b == '\t') {
+						tab = lineEnd;
+					}
+					else if (b < 0 && tab >= 0) {
+						ascii = false;
+					}
+					lineEnd++;
+				}
+				int next = lineEnd + 1;
+				if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+					lineEnd--;
+				}
+
+				if (tab >= 0) {
+					byte[] id = new byte[tab - lineStart];
+					for (int i=0;i<id.length;i++) {
+						id[i] = buffer.get(lineStart + i);
+					}
+					int hoursEnd = Math.max(tab + 1, lineEnd);
+					Maybe<WeekIntervals> result;
+					if (ascii) {
+						result = TimeExtractor.parseTimes(text, tab + 1, hoursEnd);
+					}
+					else {
+						// The view reads each byte of a multi-byte character as a character of its own, which changes
+						// what the parser sees, so decode these lines first
+						byte[] hours = new byte[hoursEnd - tab - 1];
+						for (int i=0;i<hours.length;i++) {
+							hours[i] = buffer.get(tab + 1 + i);
+						}
+						result = TimeExtractor.parseTimes(new String(hours, StandardCharsets.UTF_8));
+					}
+					this.stats.lines.increment();
+					(result.isKnown() ? this.stats.parsed : this.stats.failed).increment();
+					this.sink.accept(new String(id, StandardCharsets.UTF_8), result);
+				}
+				else if (lineEnd > lineStart) {
+					this.stats.malformed.increment();
+				}
+
+				lineStart = next;
+			}
+
+			return null;
+		}
+	}
+
+	/**
+	 * Ingests the file named by the first argument and writes venueId&lt;TAB&gt;result lines to standard output, with
+	 * the counters on standard error. The optional second argument is the number of threads to use.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: java timesparser.BulkIngest <venueId-tab-hours file> [threads]");
+			System.exit(2);
+		}
+
+		int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+		Stats stats = ingest(Paths.get(args[0]), new ResultSink() {
+			public void accept(String venueId, Maybe<WeekIntervals> result) {
+				String line = venueId + "\t" + (result.isKnown() ? result.iterator().next().toString() : "unknown") + "\n";
+				synchronized (out) {
+					try {
+						out.write(line);
+					}
+					catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}
+		}, threads);
+		out.flush();
+		System.err.println(stats);
+	}
+}
@@ -0,0 +1,52 @@
+package timesparser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A read only CharSequence view of part of a ByteBuffer, treating each byte as an ISO-8859-1 character. That only
+ * matches the decoded text for ASCII, since each byte of a multi-byte UTF-8 character shows up as a character of its
+ * own, so decode any other text before parsing it.
+ */
+/* package */ class ByteBufferCharSequence implements CharSequence {
+	private final ByteBuffer buffer;
+	private final int offset;
+	private final int length;
+
+	/**
+	 * @param buffer The bytes to view, read with absolute gets so its position is ignored.
+	 * @param offset Index in the buffer of the first character.
+	 * @param length Number of characters in the view.
+	 */
+	public ByteBufferCharSequence(ByteBuffer buffer, int offset, int length) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	public int length() {
+		return this.length;
+	}
+
+	public char charAt(int index) {
+		if (index < 0 || index >= this.length) {
+			throw new IndexOutOfBoundsException("index " + index + ", length " + this.length);
+		}
+		return (char) (this.buffer.get(this.offset + index) & 0xff);
+	}
+
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > this.length || start > end) {
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + this.length);
+		}
+		return new ByteBufferCharSequence(this.buffer, this.offset + start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		char[] chars = new char[this.length];
+		for (int i=0;i<this.length;i++) {
+			chars[i] = (char) (this.buffer.get(this.offset + i) & 0xff);
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,286 @@
+package timesparser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A WeekIntervalsIndex which venues can be added to, updated in and removed from while it's being queried, for
+ * schedules which change all day. Queries never block, and see each venue either before or after any update to it.
+ *
+ * Each venue gets a slot, and the week is split into half hour buckets, each with a bitset of the slots of venues
+ * open at some point during it. Queries check the venues in their bucket against their schedules. Updates only
+ * change the bits of the buckets the venue's old and new schedules touch, so they cost time proportional to the
+ * venue's schedule rather than to the size of the index. Writers take turns.
+ *
+ * Like WeekIntervals, this doesn't know about timezones.
+ *
+ * @param <K> The type of the venue ids, which need the usual hashCode and equals.
+ */
+public class ConcurrentWeekIntervalsIndex<K> {
+	private static final int MINUTES_PER_BUCKET = 30;
+	private static final int BUCKET_COUNT = WeekIntervals.MINUTES_PER_WEEK / MINUTES_PER_BUCKET;
+	private static final int BUCKET_WORDS = (BUCKET_COUNT + 63) / 64;
+	private static final int MIN_CAPACITY = 64;
+
+	/**
+	 * Each venue's slot. Writers synchronize on it.
+	 */
+	private final Map<K, Integer> slots = new HashMap<K, Integer>();
+	/**
+	 * Slots given up by removed venues, for reuse. Only used while synchronized on slots.
+	 */
+	private int[] freeSlots = new int[0];
+	private int freeCount;
+	/**
+	 * Slots handed out so far, free or not. Only used while synchronized on slots.
+	 */
+	private int slotCount;
+
+	private volatile Table<K> table;
+	private volatile int size;
+	/**
+	 * Bumped by each remove, so queries can tell whether a venue might have moved slots under them.
+	 */
+	private volatile long removals;
+
+	public ConcurrentWeekIntervalsIndex() {
+		this.table = new Table<K>(MIN_CAPACITY);
+	}
+
+	/**
+	 * Makes an index of the given venues in one go, which is quicker than upserting each of them.
+	 *
+	 * @param schedules The venues' opening times, by id.
+	 */
+	public ConcurrentWeekIntervalsIndex(Map<K, WeekIntervals> schedules) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < schedules.size()) {
+			capacity *= 2;
+		}
+
+		Table<K> table = new Table<K>(capacity);
+		for (Map.Entry<K, WeekIntervals> entry : schedules.entrySet()) {
+			int slot = this.slotCount++;
+			this.slots.put(checkId(entry.getKey()), slot);
+			table.mark(slot, bucketsOf(entry.getValue()));
+			table.venues.set(slot, new Venue<K>(entry.getKey(), entry.getValue()));
+		}
+		this.size = this.slots.size();
+		this.table = table;
+	}
+
+	/**
+	 * Adds a venue, or replaces its schedule if it's already in the index.
+	 *
+	 * @param id The id to return from queries when the venue is open.
+	 * @param schedule The venue's opening times.
+	 */
+	public void upsert(K id, WeekIntervals schedule) {
+		checkId(id);
+		synchronized (this.slots) {
+			Integer slot = this.slots.get(id);
+			if (slot == null) {
+				slot = this.allocateSlot();
+				this.slots.put(id, slot);
+				this.size = this.slots.size();
+			}
+
+			Table<K> table = this.table;
+			Venue<K> previous = table.venues.get(slot);
+			if (previous != null && schedule.equals(previous.schedule)) {
+				return;
+			}
+
+			// Set the new bits before publishing the schedule and clear the stale ones after, so that a query
+			// reading a venue's bit and then its schedule gets the answer for one schedule or the other
+			long[] buckets = bucketsOf(schedule);
+			table.mark(slot, buckets);
+			table.venues.set(slot, new Venue<K>(id, schedule));
+			if (previous != null) {
+				table.unmark(slot, bucketsOf(previous.schedule), buckets);
+			}
+		}
+	}
+
+	/**
+	 * @param id The venue to remove.
+	 * @return true if the venue was in the index, false otherwise.
+	 */
+	public boolean remove(K id) {
+		checkId(id);
+		synchronized (this.slots) {
+			Integer slot = this.slots.remove(id);
+			if (slot == null) {
+				return false;
+			}
+
+			Table<K> table = this.table;
+			Venue<K> previous = table.venues.getAndSet(slot, null);
+			table.unmark(slot, bucketsOf(previous.schedule), new long[BUCKET_WORDS]);
+			if (this.freeCount == this.freeSlots.length) {
+				this.freeSlots = Arrays.copyOf(this.freeSlots, Math.max(8, this.freeCount * 2));
+			}
+			this.freeSlots[this.freeCount++] = slot;
+			this.size = this.slots.size();
+			this.removals++;
+			return true;
+		}
+	}
+
+	/**
+	 * @return The venue ids open at the given time, in no particular order.
+	 */
+	public List<K> openAt(Calendar time) {
+		return this.openAt(WeekIntervals.minuteOfWeek(time));
+	}
+
+	/**
+	 * @param dayOfWeek A Calendar day of the week, e.g. Calendar.MONDAY
+	 * @param hour Hour of the day, 0-23.
+	 * @param minute Minute of the hour, 0-59.
+	 * @return The venue ids open at the given time, in no particular order.
+	 */
+	public List<K> openAt(int dayOfWeek, int hour, int minute) {
+		return this.openAt(WeekIntervals.minuteOfWeek(dayOfWeek, hour, minute));
+	}
+
+	/* package */ List<K> openAt(int minuteOfWeek) {
+		long removals = this.removals;
+		Table<K> table = this.table;
+		AtomicLongArray bucket = table.buckets[minuteOfWeek / MINUTES_PER_BUCKET];
+
+		List<K> result = new ArrayList<K>();
+		for (int i=0;i<bucket.length();i++) {
+			long word = bucket.get(i);
+			while (word != 0) {
+				int slot = (i << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+				Venue<K> venue = table.venues.get(slot);
+				if (venue != null && venue.schedule.covers(minuteOfWeek)) {
+					result.add(venue.id);
+				}
+			}
+		}
+
+		// A venue removed and added back during the query can turn up in both its old and its new slot
+		if (this.removals != removals) {
+			result = new ArrayList<K>(new LinkedHashSet<K>(result));
+		}
+		return result;
+	}
+
+	/**
+	 * @return The number of venues in the index. Updates made during the call may or may not be counted.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	private int allocateSlot() {
+		if (this.freeCount > 0) {
+			return this.freeSlots[--this.freeCount];
+		}
+		if (this.slotCount == this.table.capacity()) {
+			this.table = this.table.grow();
+		}
+		return this.slotCount++;
+	}
+
+	private static <K> K checkId(K id) {
+		if (id == null) {
+			throw new IllegalArgumentException("id must not be null");
+		}
+		return id;
+	}
+
+	/**
+	 * @return A bitset of the buckets the schedule is open at some point during.
+	 */
+	private static long[] bucketsOf(WeekIntervals schedule) {
+		long[] buckets = new long[BUCKET_WORDS];
+		for (int i=0;i<schedule.intervalCount();i++) {
+			int last = schedule.endMinute(i) / MINUTES_PER_BUCKET;
+			for (int bucket=schedule.startMinute(i) / MINUTES_PER_BUCKET;bucket<=last;bucket++) {
+				buckets[bucket >>> 6] |= 1L << bucket;
+			}
+		}
+		return buckets;
+	}
+
+	private static final class Venue<K> {
+		private final K id;
+		private final WeekIntervals schedule;
+
+		public Venue(K id, WeekIntervals schedule) {
+			this.id = id;
+			this.schedule = schedule;
+		}
+	}
+
+	/**
+	 * The venues by slot, and each bucket's bitset of slots. Replaced by a larger copy when the slots run out, and
+	 * otherwise only changed while synchronized on the index's slots.
+	 */
+	private static final class Table<K> {
+		private final AtomicReferenceArray<Venue<K>> venues;
+		private final AtomicLongArray[] buckets = new AtomicLongArray[BUCKET_COUNT];
+
+		public Table(int capacity) {
+			this.venues = new AtomicReferenceArray<Venue<K>>(capacity);
+			for (int i=0;i<BUCKET_COUNT;i++) {
+				this.buckets[i] = new AtomicLongArray(capacity / 64);
+			}
+		}
+
+		public int capacity() {
+			return this.venues.length();
+		}
+
+		public Table<K> grow() {
+			Table<K> grown = new Table<K>(this.capacity() * 2);
+			for (int slot=0;slot<this.capacity();slot++) {
+				grown.venues.set(slot, this.venues.get(slot));
+			}
+			for (int i=0;i<BUCKET_COUNT;i++) {
+				for (int word=0;word<this.buckets[i].length();word++) {
+					grown.buckets[i].set(word, this.buckets[i].get(word));
+				}
+			}
+			return grown;
+		}
+
+		/**
+		 * Sets the slot's bit in the given buckets.
+		 */
+		public void mark(int slot, long[] buckets) {
+			long bit = 1L << slot;
+			for (int bucket=0;bucket<BUCKET_COUNT;bucket++) {
+				if ((buckets[bucket >>> 6] & (1L << bucket)) != 0) {
+					AtomicLongArray words = this.buckets[bucket];
+					words.set(slot >>> 6, words.get(slot >>> 6) | bit);
+				}
+			}
+		}
+
+		/**
+		 * Clears the slot's bit in the buckets in stale but not in kept.
+		 */
+		public void unmark(int slot, long[] stale, long[] kept) {
+			long bit = 1L << slot;
+			for (int bucket=0;bucket<BUCKET_COUNT;bucket++) {
+				long mask = 1L << bucket;
+				if ((stale[bucket >>> 6] & mask) != 0 && (kept[bucket >>> 6] & mask) == 0) {
+					AtomicLongArray words = this.buckets[bucket];
+					words.set(slot >>> 6, words.get(slot >>> 6) & ~bit);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package timesparser;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A TimeParserMetrics which keeps running totals in memory, for polling from a metrics exporter or a status page.
+ * Parse latencies go into a histogram of power of two buckets: bucket i counts parses which took from 2^(i-1) up to
+ * 2^i - 1 nanoseconds, and bucket 0 those which took no measurable time.
+ */
+public class CountingTimeParserMetrics implements TimeParserMetrics {
+	/**
+	 * Enough buckets for any non-negative long.
+	 */
+	public static final int LATENCY_BUCKETS = 64;
+
+	private final LongAdder successes = new LongAdder();
+	private final LongAdder[] failures = new LongAdder[FailureCause.values().length];
+	private final LongAdder tokens = new LongAdder();
+	private final LongAdder skippedChars = new LongAdder();
+	private final LongAdder containsQueries = new LongAdder();
+	private final LongAdder[] latencies = new LongAdder[LATENCY_BUCKETS];
+
+	public CountingTimeParserMetrics() {
+		for (int i=0;i<this.failures.length;i++) {
+			this.failures[i] = new LongAdder();
+		}
+		for (int i=0;i<this.latencies.length;i++) {
+			this.latencies[i] = new LongAdder();
+		}
+	}
+
+	public void parseSucceeded(long nanos, int tokens, int skippedChars) {
+		this.successes.increment();
+		this.recordParse(nanos, tokens, skippedChars);
+	}
+
+	public void parseFailed(FailureCause cause, long nanos, int tokens, int skippedChars) {
+		this.failures[cause.ordinal()].increment();
+		this.recordParse(nanos, tokens, skippedChars);
+	}
+
+	public void containsQueried(int queries) {
+		this.containsQueries.add(queries);
+	}
+
+	private void recordParse(long nanos, int tokens, int skippedChars) {
+		this.tokens.add(tokens);
+		this.skippedChars.add(skippedChars);
+		this.latencies[latencyBucket(nanos)].increment();
+	}
+
+	/* package */ static int latencyBucket(long nanos) {
+		// nanoTime can go backwards on some platforms, count those as instant
+		return (nanos <= 0) ? 0 : LATENCY_BUCKETS - Long.numberOfLeadingZeros(nanos);
+	}
+
+	public long getParseCount() {
+		long count = this.successes.sum();
+		for (LongAdder failure : this.failures) {
+			count += failure.sum();
+		}
+		return count;
+	}
+
+	public long getSuccessCount() {
+		return this.successes.sum();
+	}
+
+	public long getFailureCount(FailureCause cause) {
+		return this.failures[cause.ordinal()].sum();
+	}
+
+	public long getTokenCount() {
+		return this.tokens.sum();
+	}
+
+	public long getSkippedCharCount() {
+		return this.skippedChars.sum();
+	}
+
+	public long getContainsQueryCount() {
+		return this.containsQueries.sum();
+	}
+
+	/**
+	 * @return How many parses fell in each latency bucket, see the class comment.
+	 */
+	public long[] getLatencyHistogram() {
+		long[] histogram = new long[LATENCY_BUCKETS];
+		for (int i=0;i<histogram.length;i++) {
+			histogram[i] = this.latencies[i].sum();
+		}
+		return histogram;
+	}
+}
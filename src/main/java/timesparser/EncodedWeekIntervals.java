@@ -0,0 +1,183 @@
+package timesparser;
+
+import java.nio.ByteBuffer;
+import java.util.Calendar;
+
+/**
+ * A read only view of WeekIntervals in their compact binary form, which answers contains queries straight from the
+ * encoded bytes without decoding them into a WeekIntervals.
+ *
+ * The encoding is a version byte, then the number of intervals, then for each interval in start time order the gap
+ * from the end of the previous interval (or from the start of the week for the first one) followed by the interval's
+ * length, all in minutes. The numbers are unsigned LEB128 varints, so a typical schedule takes two or three bytes
+ * per interval.
+ */
+public class EncodedWeekIntervals {
+	/* package */ static final byte VERSION = 1;
+
+	private final ByteBuffer buffer;
+	private final int offset;
+
+	private EncodedWeekIntervals(ByteBuffer buffer, int offset) {
+		this.buffer = buffer;
+		this.offset = offset;
+	}
+
+	/**
+	 * Makes a view of the intervals encoded at the buffer's position. The bytes aren't copied, so they mustn't change
+	 * while the view is in use.
+	 *
+	 * @param buffer Holds intervals written by WeekIntervals.writeTo.
+	 * @return A view of the encoded intervals.
+	 * @throws IllegalArgumentException If the data isn't a supported encoding.
+	 */
+	public static EncodedWeekIntervals wrap(ByteBuffer buffer) {
+		checkVersion(buffer, buffer.position());
+		return new EncodedWeekIntervals(buffer, buffer.position());
+	}
+
+	/* package */ boolean contains(int minuteOfWeek) {
+		return contains(this.buffer, this.offset, minuteOfWeek);
+	}
+
+	/**
+	 * Checks whether the encoded intervals contain the given time.
+	 *
+	 * Note that EncodedWeekIntervals doesn't know about timezones.
+	 *
+	 * @param time The time to check for
+	 * @return true if the given time is contained, false otherwise.
+	 */
+	public boolean contains(Calendar time) {
+		int day = time.get(Calendar.DAY_OF_WEEK);
+		int hour = time.get(Calendar.HOUR_OF_DAY);
+		int minute = time.get(Calendar.MINUTE);
+
+		return this.contains(WeekIntervals.minuteOfWeek(day, hour, minute));
+	}
+
+	/**
+	 * @return The decoded intervals.
+	 */
+	public WeekIntervals toWeekIntervals() {
+		ByteBuffer view = this.buffer.duplicate();
+		view.position(this.offset);
+		return read(view);
+	}
+
+	/**
+	 * Checks the intervals encoded at offset for the given minute, using only absolute reads so nothing is allocated
+	 * and the buffer's position is untouched. The encoding must already have been checked.
+	 */
+	/* package */ static boolean contains(ByteBuffer buffer, int offset, int minuteOfWeek) {
+		long countAndPosition = readVarint(buffer, offset + 1);
+		int count = (int) (countAndPosition >>> 32);
+		int position = (int) countAndPosition;
+		int previousEnd = 0;
+		for (int i=0;i<count;i++) {
+			long gap = readVarint(buffer, position);
+			long length = readVarint(buffer, (int) gap);
+			int start = previousEnd + (int) (gap >>> 32);
+			int end = start + (int) (length >>> 32);
+			previousEnd = end;
+			position = (int) length;
+			if (minuteOfWeek < start) {
+				return false;
+			}
+			if (minuteOfWeek <= end) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* package */ static int encodedSize(WeekIntervals intervals) {
+		int size = 1 + varintSize(intervals.intervalCount());
+		int previousEnd = 0;
+		for (int i=0;i<intervals.intervalCount();i++) {
+			size += varintSize(intervals.startMinute(i) - previousEnd);
+			size += varintSize(intervals.endMinute(i) - intervals.startMinute(i));
+			previousEnd = intervals.endMinute(i);
+		}
+		return size;
+	}
+
+	/* package */ static void write(WeekIntervals intervals, ByteBuffer buffer) {
+		buffer.put(VERSION);
+		writeVarint(buffer, intervals.intervalCount());
+		int previousEnd = 0;
+		for (int i=0;i<intervals.intervalCount();i++) {
+			writeVarint(buffer, intervals.startMinute(i) - previousEnd);
+			writeVarint(buffer, intervals.endMinute(i) - intervals.startMinute(i));
+			previousEnd = intervals.endMinute(i);
+		}
+	}
+
+	/* package */ static WeekIntervals read(ByteBuffer buffer) {
+		checkVersion(buffer, buffer.position());
+		long countAndPosition = readVarint(buffer, buffer.position() + 1);
+		int count = (int) (countAndPosition >>> 32);
+		int position = (int) countAndPosition;
+
+		WeekIntervals.Builder intervals = new WeekIntervals.Builder();
+		int previousEnd = 0;
+		for (int i=0;i<count;i++) {
+			long gap = readVarint(buffer, position);
+			long length = readVarint(buffer, (int) gap);
+			int start = previousEnd + (int) (gap >>> 32);
+			int end = start + (int) (length >>> 32);
+			boolean sameDay = start / WeekIntervals.MINUTES_PER_DAY == end / WeekIntervals.MINUTES_PER_DAY;
+			if (end >= WeekIntervals.MINUTES_PER_WEEK || !sameDay || (i > 0 && start <= previousEnd)) {
+				throw new IllegalArgumentException("Corrupt interval " + start + "-" + end + " at byte " + position);
+			}
+			intervals.add(start, end);
+			previousEnd = end;
+			position = (int) length;
+		}
+
+		buffer.position(position);
+		return intervals.build();
+	}
+
+	private static void checkVersion(ByteBuffer buffer, int offset) {
+		if (offset >= buffer.limit() || buffer.get(offset) != VERSION) {
+			throw new IllegalArgumentException("Unsupported WeekIntervals encoding at byte " + offset);
+		}
+	}
+
+	private static int varintSize(int value) {
+		int size = 1;
+		while ((value >>>= 7) != 0) {
+			size++;
+		}
+		return size;
+	}
+
+	private static void writeVarint(ByteBuffer buffer, int value) {
+		while ((value & ~0x7f) != 0) {
+			buffer.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * Reads the varint at position.
+	 *
+	 * @return The value in the top 32 bits and the position after it in the bottom 32, so nothing's allocated.
+	 */
+	private static long readVarint(ByteBuffer buffer, int position) {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (position >= buffer.limit()) {
+				throw new IllegalArgumentException("Truncated WeekIntervals encoding at byte " + position);
+			}
+			byte b = buffer.get(position++);
+			value |= (b & 0x7f) << shift;
+			if (b >= 0) {
+				return ((long) value << 32) | position;
+			}
+		}
+		throw new IllegalArgumentException("Varint too long at byte " + position);
+	}
+}
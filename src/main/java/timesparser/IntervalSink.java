@@ -0,0 +1,13 @@
+package timesparser;
+
+/**
+ * Receives the intervals of a parsed description from TimeExtractor.parseTimes(CharSequence, int, int, IntervalSink),
+ * for callers which keep intervals in their own storage and have no use for a WeekIntervals.
+ */
+public interface IntervalSink {
+	/**
+	 * @param startMinuteOfWeek The first minute of the interval, counting from the start of Sunday.
+	 * @param endMinuteOfWeek The last minute of the interval, on the same day as the first.
+	 */
+	void accept(int startMinuteOfWeek, int endMinuteOfWeek);
+}
@@ -5,16 +5,16 @@ package timesparser;
  * Represents an hour/minute/second with no accompanying timezone information.
  */
 /* package */ class LocalTime implements Comparable<LocalTime> {
-	private Integer seconds;
+	private final int seconds;
 
-	public LocalTime(Integer hour, Integer minute) {
+	public LocalTime(int hour, int minute) {
 		this(hour, minute, 0);
 	}
 
 	/*
 	 * Seconds aren't produced by the parser.
 	 */
-	private LocalTime(Integer hour, Integer minute, Integer second) {
+	private LocalTime(int hour, int minute, int second) {
 		this.seconds = hour * 3600 + minute * 60 + second;
 	}
 
@@ -31,27 +31,23 @@ package timesparser;
 		return this.seconds % 60;
 	}
 
+	public int getMinuteOfDay() {
+		return this.seconds / 60;
+	}
+
 	public boolean isAfter(LocalTime other) {
 		return this.compareTo(other) > 0;
 	}
 
 	public int compareTo(LocalTime otherTime) {
-		if (this.seconds.equals(otherTime.seconds)) {
-			return 0;
-		}
-		else if (this.seconds < otherTime.seconds) {
-			return -1;
-		}
-		else {
-			return 1;
-		}
+		return Integer.compare(this.seconds, otherTime.seconds);
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((seconds == null) ? 0 : seconds.hashCode());
+		result = prime * result + seconds;
 		return result;
 	}
 
@@ -64,12 +60,7 @@ package timesparser;
 		if (getClass() != obj.getClass())
 			return false;
 		LocalTime other = (LocalTime) obj;
-		if (seconds == null) {
-			if (other.seconds != null)
-				return false;
-		} else if (!seconds.equals(other.seconds))
-			return false;
-		return true;
+		return seconds == other.seconds;
 	}
 
 	@Override
@@ -26,42 +26,48 @@ import java.util.Iterator;
     public abstract T otherwise(T defaultValue);
     public abstract Maybe<T> otherwise(Maybe<T> maybeDefaultValue);
     
+    private static final Maybe<Object> UNKNOWN = new Maybe<Object>() {
+        @Override
+        public boolean isKnown() {
+            return false;
+        }
+
+        public Iterator<Object> iterator() {
+            return Collections.emptyList().iterator();
+        }
+
+        @Override
+        public Object otherwise(Object defaultValue) {
+            return defaultValue;
+        }
+
+        @Override
+        public Maybe<Object> otherwise(Maybe<Object> maybeDefaultValue) {
+            return maybeDefaultValue;
+        }
+
+        @Override
+        public String toString() {
+            return "unknown";
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    };
+
+    /**
+     * Unknown values hold nothing, so every one is the same instance.
+     */
+    @SuppressWarnings("unchecked")
     public static <T> Maybe<T> unknown() {
-        return new Maybe<T>() {
-            @Override
-            public boolean isKnown() {
-                return false;
-            }
-
-            public Iterator<T> iterator() {
-                return Collections.<T>emptyList().iterator();
-            }
-
-            @Override
-            public T otherwise(T defaultValue) {
-                return defaultValue;
-            }
-
-            @Override
-            public Maybe<T> otherwise(Maybe<T> maybeDefaultValue) {
-                return maybeDefaultValue;
-            }
-
-            @Override
-            public String toString() {
-                return "unknown";
-            }
-
-            @Override
-            public boolean equals(Object obj) {
-                return false;
-            }
-
-            @Override
-            public int hashCode() {
-                return 0;
-            }
-        };
+        return (Maybe<T>) UNKNOWN;
     }
 
     public static <T> Maybe<T> definitely(final T theValue) {
@@ -0,0 +1,18 @@
+package timesparser;
+
+/**
+ * Holds the TimeParserMetrics installed with TimeExtractor.setMetrics. It lives here rather than in TimeExtractor so
+ * WeekIntervals queries don't depend on the parser. The field is a plain static, not a volatile one, so checking it
+ * against NOOP on the query path is an ordinary load the JIT can hoist out of loops.
+ */
+/* package */ final class MetricsHolder {
+	/**
+	 * Never null. Set once at startup; threads which are already running may not see a later change straight away.
+	 */
+	/* package */ static TimeParserMetrics metrics = TimeParserMetrics.NOOP;
+
+	/**
+	 * Utility class
+	 */
+	private MetricsHolder() {}
+}
@@ -0,0 +1,228 @@
+package timesparser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A read only store of many venues' schedules packed into one memory mapped file, looked up by venue ordinal.
+ * Queries read the encoded intervals straight from the mapping and don't allocate, so the schedules take no heap,
+ * and every process on a host which opens the same file shares the same pages.
+ *
+ * The file holds a header (magic number, format version and venue count), then a table of venue count + 1 offsets
+ * into the data section, then each venue's intervals in the EncodedWeekIntervals format. A venue's data runs from
+ * its offset to the next one, and is empty if the venue has no schedule. Everything must fit in a single 2GB mapping.
+ */
+public class ScheduleStore implements Closeable {
+	private static final int MAGIC = 0x54505353; // "TPSS"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 12;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int venueCount;
+	private final int dataStart;
+
+	private ScheduleStore(FileChannel channel, MappedByteBuffer buffer) {
+		this.channel = channel;
+		this.buffer = buffer;
+		this.venueCount = buffer.getInt(8);
+		this.dataStart = HEADER_SIZE + (this.venueCount + 1) * 4;
+	}
+
+	/**
+	 * Writes a store file holding the given schedules. The venue ordinals are the indexes in the list.
+	 *
+	 * @param file Where to write the store, atomically replacing anything already there, so stores already open on
+	 * the old file keep reading the old schedules.
+	 * @param schedules The schedule for each venue, or null for venues without one.
+	 */
+	public static void write(Path file, List<WeekIntervals> schedules) throws IOException {
+		long dataSize = 0;
+		for (WeekIntervals schedule : schedules) {
+			dataSize += (schedule == null) ? 0 : schedule.encodedSize();
+		}
+		long tableSize = (schedules.size() + 1L) * 4;
+		if (HEADER_SIZE + tableSize + dataSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Schedules need " + (HEADER_SIZE + tableSize + dataSize)
+					+ " bytes, more than fit in one store");
+		}
+
+		// Other processes may have the old file mapped, so never change it in place. Write a new file alongside it and
+		// rename that over it, which leaves their mappings of the old one intact.
+		String suffix = Long.toHexString(ThreadLocalRandom.current().nextLong());
+		Path temp = file.resolveSibling("." + file.getFileName() + "." + suffix + ".tmp");
+		try {
+			writeTable(temp, schedules);
+			Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static void writeTable(Path file, List<WeekIntervals> schedules) throws IOException {
+		try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			ByteBuffer block = ByteBuffer.allocate(1 << 16);
+			block.putInt(MAGIC).putInt(VERSION).putInt(schedules.size());
+
+			int offset = 0;
+			for (int i=0;i<=schedules.size();i++) {
+				flushIfFull(out, block, 4);
+				block.putInt(offset);
+				if (i < schedules.size() && schedules.get(i) != null) {
+					offset += schedules.get(i).encodedSize();
+				}
+			}
+
+			for (WeekIntervals schedule : schedules) {
+				if (schedule != null) {
+					flushIfFull(out, block, schedule.encodedSize());
+					schedule.writeTo(block);
+				}
+			}
+
+			block.flip();
+			while (block.hasRemaining()) {
+				out.write(block);
+			}
+			out.force(false);
+		}
+	}
+
+	private static void flushIfFull(FileChannel out, ByteBuffer block, int needed) throws IOException {
+		if (block.remaining() < needed) {
+			block.flip();
+			while (block.hasRemaining()) {
+				out.write(block);
+			}
+			block.clear();
+		}
+	}
+
+	/**
+	 * Maps a store written by write.
+	 *
+	 * @param file The store file.
+	 * @return The opened store, which should be closed when you're finished with it.
+	 * @throws IOException If the file can't be read or isn't a store.
+	 */
+	public static ScheduleStore open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+				throw new IOException(file + " isn't a schedule store");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buffer.getInt(0) != MAGIC) {
+				throw new IOException(file + " isn't a schedule store");
+			}
+			if (buffer.getInt(4) != VERSION) {
+				throw new IOException(file + " has unsupported store version " + buffer.getInt(4));
+			}
+			int venueCount = buffer.getInt(8);
+			long tableEnd = HEADER_SIZE + (venueCount + 1L) * 4;
+			if (venueCount < 0 || tableEnd > size) {
+				throw new IOException(file + " is truncated");
+			}
+			// Every venue's data has to lie within the mapping, or lookups would read past its end
+			int previous = 0;
+			for (int i=0;i<=venueCount;i++) {
+				int offset = buffer.getInt(HEADER_SIZE + i * 4);
+				if (offset < previous || (i == 0 && offset != 0) || tableEnd + offset > size) {
+					throw new IOException(file + " has a corrupt offset table at venue " + i);
+				}
+				previous = offset;
+			}
+			return new ScheduleStore(channel, buffer);
+		}
+		catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return The number of venues in the store.
+	 */
+	public int size() {
+		return this.venueCount;
+	}
+
+	/**
+	 * @param venue A venue ordinal.
+	 * @return true if the venue has a schedule, false if it was stored as null.
+	 */
+	public boolean hasSchedule(int venue) {
+		return this.dataEnd(venue) > this.dataOffset(venue);
+	}
+
+	/**
+	 * Checks whether the venue's schedule contains the given time. Venues without a schedule contain nothing.
+	 *
+	 * Note that ScheduleStore doesn't know about timezones.
+	 *
+	 * @param venue A venue ordinal.
+	 * @param dayOfWeek A Calendar day of the week, e.g. Calendar.MONDAY
+	 * @param minuteOfDay Minutes since midnight.
+	 * @return true if the given time is contained, false otherwise.
+	 */
+	public boolean contains(int venue, int dayOfWeek, int minuteOfDay) {
+		if (dayOfWeek < Calendar.SUNDAY || dayOfWeek > Calendar.SATURDAY) {
+			throw new IllegalArgumentException("Not a day of the week: " + dayOfWeek);
+		}
+		if (minuteOfDay < 0 || minuteOfDay >= WeekIntervals.MINUTES_PER_DAY) {
+			throw new IllegalArgumentException("Not a minute of the day: " + minuteOfDay);
+		}
+
+		int offset = this.dataOffset(venue);
+		if (this.dataEnd(venue) == offset) {
+			return false;
+		}
+		return EncodedWeekIntervals.contains(this.buffer, offset, WeekIntervals.minuteOfWeek(dayOfWeek, 0, minuteOfDay));
+	}
+
+	/**
+	 * Decodes a venue's schedule onto the heap.
+	 *
+	 * @param venue A venue ordinal.
+	 * @return The venue's schedule, unknown if it doesn't have one.
+	 */
+	public Maybe<WeekIntervals> get(int venue) {
+		int offset = this.dataOffset(venue);
+		if (this.dataEnd(venue) == offset) {
+			return Maybe.unknown();
+		}
+		ByteBuffer view = this.buffer.duplicate();
+		view.position(offset);
+		return Maybe.definitely(WeekIntervals.readFrom(view));
+	}
+
+	private int dataOffset(int venue) {
+		if (venue < 0 || venue >= this.venueCount) {
+			throw new IndexOutOfBoundsException("venue " + venue + ", size " + this.venueCount);
+		}
+		return this.dataStart + this.buffer.getInt(HEADER_SIZE + venue * 4);
+	}
+
+	private int dataEnd(int venue) {
+		return this.dataStart + this.buffer.getInt(HEADER_SIZE + (venue + 1) * 4);
+	}
+
+	/**
+	 * Closes the file. The mapping itself is released when it's garbage collected, so don't use the store after this.
+	 */
+	public void close() throws IOException {
+		this.channel.close();
+	}
+}
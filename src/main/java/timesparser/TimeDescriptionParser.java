@@ -1,15 +1,10 @@
 package timesparser;
 
-import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Locale;
 import java.util.NoSuchElementException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 
 /* package */ class TimeDescriptionParser {
@@ -18,51 +13,320 @@ import java.util.regex.Pattern;
 	 */
 	private TimeDescriptionParser() {}
 
-	/**
-	 * The element classes we try to parse out, in the order they should be tried.
-	 */
-	@SuppressWarnings("unchecked")
-	private static List<Class<? extends TimeDescriptionElement>> elementClasses =
-		Arrays.asList(DayRange.class, Day.class, TimeRange.class, Comma.class);
 	/**
 	 * Turns a time description string into a list of tokens .
 	 */
 	public static List<TimeDescriptionElement> parse(String timeSentence) {
-		List<TimeDescriptionElement> result = new LinkedList<TimeDescriptionElement>();
-		String remainder = timeSentence.toLowerCase(Locale.ENGLISH);
-
-		while(remainder.length() > 0) {
-			// Using reflection makes this code much more concise
-			boolean foundMatch = false;
-			for (Class<? extends TimeDescriptionElement> c : elementClasses) {
-				try {
-					Method parseMethod = c.getDeclaredMethod("parse", String.class);
-					@SuppressWarnings("unchecked")
-					Maybe<ParseResult<TimeDescriptionElement>> rtn = 
-						(Maybe<ParseResult<TimeDescriptionElement>>) parseMethod.invoke(null, remainder);
-					if (rtn.isKnown()) {
-						result.add(rtn.iterator().next().element);
-						remainder = rtn.iterator().next().remainder;
-						foundMatch = true;
-						break;
+		return parse(timeSentence, 0, timeSentence.length());
+	}
+
+	/**
+	 * Turns the characters between start (inclusive) and end (exclusive) of a time description into a list of
+	 * tokens. Matching is case insensitive and works directly on the given characters, so no copies are made.
+	 */
+	public static List<TimeDescriptionElement> parse(CharSequence timeSentence, int start, int end) {
+		List<TimeDescriptionElement> result = new ArrayList<TimeDescriptionElement>();
+		Tokenizer tokenizer = new Tokenizer(timeSentence, start, end);
+		TimeDescriptionElement token;
+		while ((token = tokenizer.next()) != null) {
+			result.add(token);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Hands out the tokens of a time description one at a time, so callers can act on them as they're found
+	 * instead of waiting for the whole list.
+	 */
+	/* package */ static class Tokenizer {
+		private final TokenScanner scanner = new TokenScanner();
+
+		public Tokenizer(CharSequence timeSentence, int start, int end) {
+			this.scanner.reset(timeSentence, start, end);
+		}
+
+		/**
+		 * @return The next token, or null if there are no more.
+		 */
+		public TimeDescriptionElement next() {
+			if (!this.scanner.next()) {
+				return null;
+			}
+
+			TokenScanner token = this.scanner;
+			switch (token.type) {
+				case TokenScanner.DAY_RANGE:
+					return new DayRange(token.startDay, token.endDay);
+				case TokenScanner.DAY:
+					return new Day(token.startDay);
+				case TokenScanner.TIME_RANGE:
+					return TimeRange.ofMinutes(token.startMinute, token.endMinute);
+				default:
+					return new Comma();
+			}
+		}
+	}
+
+	/**
+	 * Reads tokens without creating any objects, filling in its public fields instead, so descriptions can be parsed
+	 * straight into primitive intervals. One scanner can be reused for any number of descriptions. The element
+	 * parse methods and the Tokenizer are wrappers around this.
+	 */
+	/* package */ static final class TokenScanner {
+		public static final int DAY_RANGE = 1;
+		public static final int DAY = 2;
+		public static final int TIME_RANGE = 3;
+		public static final int COMMA = 4;
+
+		/**
+		 * The kind of the last token found, one of the constants above.
+		 */
+		public int type;
+		/**
+		 * The Calendar days of a DAY_RANGE, or the day of a DAY in both.
+		 */
+		public int startDay;
+		public int endDay;
+		/**
+		 * The minutes of the day of a TIME_RANGE. The start is after the end if it goes past midnight, and they're
+		 * both 0 for "closed".
+		 */
+		public int startMinute;
+		public int endMinute;
+		/**
+		 * Offset just after the last token found.
+		 */
+		public int end;
+
+		private final TimeRangeScanner timeRange = new TimeRangeScanner();
+		private CharSequence desc;
+		private int position;
+		private int limit;
+		private int tokenCount;
+		private int skippedChars;
+
+		/**
+		 * Starts reading a new description for next.
+		 */
+		public void reset(CharSequence desc, int start, int limit) {
+			this.desc = desc;
+			this.position = start;
+			this.limit = limit;
+			this.tokenCount = 0;
+			this.skippedChars = 0;
+		}
+
+		/**
+		 * Forgets the description given to reset, so the scanner doesn't keep the caller's characters reachable
+		 * between parses, and zeroes the counts.
+		 */
+		public void clear() {
+			this.desc = null;
+			this.position = 0;
+			this.limit = 0;
+			this.tokenCount = 0;
+			this.skippedChars = 0;
+		}
+
+		/**
+		 * Finds the next token in the description given to reset, skipping anything which doesn't start one.
+		 *
+		 * @return true if a token was found, false if there are no more.
+		 */
+		public boolean next() {
+			while (this.position < this.limit) {
+				if (this.scanElement(this.desc, this.position, this.limit)) {
+					this.position = this.end;
+					this.tokenCount++;
+					return true;
+				}
+				this.position++;
+				this.skippedChars++;
+			}
+			return false;
+		}
+
+		/**
+		 * @return How many tokens next has found since reset, 0 after clear.
+		 */
+		public int getTokenCount() {
+			return this.tokenCount;
+		}
+
+		/**
+		 * @return How many characters next has skipped over since reset because they didn't start a token, 0 after
+		 * clear.
+		 */
+		public int getSkippedChars() {
+			return this.skippedChars;
+		}
+
+		/**
+		 * Tries each kind of token that could start at start, in the order DayRange, Day, TimeRange, Comma. The
+		 * first character rules out most of them, so we only try the ones which could possibly succeed.
+		 */
+		private boolean scanElement(CharSequence desc, int start, int limit) {
+			char first = Character.toLowerCase(desc.charAt(start));
+			switch (first) {
+				case 'd': case 'm': case 't': case 'w': case 'f': case 's':
+					return this.scanDayRange(desc, start, limit) || this.scanDay(desc, start, limit);
+				case 'c':
+					return this.scanTimeRange(desc, start, limit);
+				case ',':
+					return this.scanComma(desc, start, limit);
+				default:
+					return first >= '0' && first <= '9' && this.scanTimeRange(desc, start, limit);
+			}
+		}
+
+		public boolean scanDayRange(CharSequence desc, int start, int limit) {
+			if (startsWith(desc, start, limit, "daily")) {
+				return this.foundDays(DAY_RANGE, Calendar.MONDAY, Calendar.SUNDAY, start + 5);
+			}
+			if (!this.scanDay(desc, start, limit)) {
+				return false;
+			}
+
+			// This takes the first " ?- ?" anywhere after the start day, not just straight after it
+			int startDay = this.startDay;
+			int dash = this.end;
+			while (dash < limit && desc.charAt(dash) != '-') {
+				dash++;
+			}
+			if (dash == limit) {
+				return false;
+			}
+			int afterSeparator = (dash + 1 < limit && desc.charAt(dash + 1) == ' ') ? dash + 2 : dash + 1;
+			if (!this.scanDay(desc, afterSeparator, limit)) {
+				return false;
+			}
+			return this.foundDays(DAY_RANGE, startDay, this.startDay, this.end);
+		}
+
+		public boolean scanDay(CharSequence desc, int start, int limit) {
+			// Check the long names first, because the short names are a prefix of them
+			String[] names = Day.longDays;
+			int day = Day.find(names, desc, start, limit);
+			if (day == 0) {
+				names = Day.shortDays;
+				day = Day.find(names, desc, start, limit);
+			}
+			if (day == 0) {
+				return false;
+			}
+			return this.foundDays(DAY, day, day, start + names[day].length());
+		}
+
+		public boolean scanTimeRange(CharSequence desc, int start, int limit) {
+			if (startsWith(desc, start, limit, "closed")) {
+				return this.foundTimes(0, 0, start + 6);
+			}
+
+			TimeRangeScanner scanner = this.timeRange;
+			if (!scanner.scan(desc, start, limit)) {
+				return false;
+			}
+
+			int startHourBase = (scanner.startHour == 12) ? 0 : scanner.startHour;
+			int endHourBase = (scanner.endHour == 12) ? 0 : scanner.endHour;
+
+			int endHour;
+			if (scanner.endMeridiem == TimeRangeScanner.AM) {
+				endHour = endHourBase;
+			}
+			else if (scanner.endMeridiem == TimeRangeScanner.PM) {
+				endHour = endHourBase + 12;
+			}
+			else {
+				return false;
+			}
+
+			int startHour;
+			if (scanner.startMeridiem == TimeRangeScanner.AM) {
+				startHour = startHourBase;
+			}
+			else if (scanner.startMeridiem == TimeRangeScanner.PM) {
+				startHour = startHourBase + 12;
+			}
+			else {
+				if (startHourBase >= endHourBase) {
+					if (endHour >= 12) {
+						startHour = startHourBase;
+					}
+					else {
+						startHour = startHourBase + 12;
 					}
-				} catch (Exception e) {
-					throw new RuntimeException(e);
+				}
+				else {
+					startHour = (endHour > 12) ? startHourBase + 12 : startHourBase;
 				}
 			}
 
-			if (!foundMatch) {
-				remainder = remainder.substring(1);
+			return this.foundTimes(startHour * 60 + scanner.startMinute, endHour * 60 + scanner.endMinute, scanner.end);
+		}
+
+		public boolean scanComma(CharSequence desc, int start, int limit) {
+			if (start < limit && desc.charAt(start) == ',') {
+				this.type = COMMA;
+				this.end = start + 1;
+				return true;
 			}
+			return false;
 		}
 
-		return result;
+		private boolean foundDays(int type, int startDay, int endDay, int end) {
+			this.type = type;
+			this.startDay = startDay;
+			this.endDay = endDay;
+			this.end = end;
+			return true;
+		}
+
+		private boolean foundTimes(int startMinute, int endMinute, int end) {
+			this.type = TIME_RANGE;
+			this.startMinute = startMinute;
+			this.endMinute = endMinute;
+			this.end = end;
+			return true;
+		}
+	}
+
+	/**
+	 * Checks whether there's anywhere in desc that a DayRange or Day could be parsed from, without allocating anything.
+	 * This looks at every position rather than just the ones the Tokenizer would stop at, so it may find a day the
+	 * Tokenizer wouldn't, but it never misses one.
+	 */
+	/* package */ static boolean mayContainDay(CharSequence desc, int start, int end) {
+		for (int position=start;position<end;position++) {
+			switch (Character.toLowerCase(desc.charAt(position))) {
+				case 'd': case 'm': case 't': case 'w': case 'f': case 's':
+					if (startsWith(desc, position, end, "daily") || Day.matches(desc, position, end)) {
+						return true;
+					}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether desc has the given lower case word at position, ignoring case.
+	 */
+	private static boolean startsWith(CharSequence desc, int position, int end, String word) {
+		if (end - position < word.length()) {
+			return false;
+		}
+		for (int i=0;i<word.length();i++) {
+			if (Character.toLowerCase(desc.charAt(position + i)) != word.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/* package */ static class DayRange implements TimeDescriptionElement, Iterable<Integer> {
 		public final Integer startDay;
 		public final Integer endDay;
-		private final static Pattern sepPattern = Pattern.compile(" ?- ?");
 
 		public DayRange(Integer startDay, Integer endDay) {
 			this.startDay = startDay;
@@ -70,29 +334,16 @@ import java.util.regex.Pattern;
 		}
 
 		public static Maybe<ParseResult<DayRange>> parse(String desc) {
-			if (desc.startsWith("daily")) {
-				String remainder = desc.substring(5);
-				DayRange wholeWeek = new DayRange(Calendar.MONDAY, Calendar.SUNDAY);
-				return Maybe.definitely(new ParseResult<DayRange>(wholeWeek, remainder));
-			}
-
-			Maybe<ParseResult<Day>> startDayRtn = Day.parse(desc);
-			if (startDayRtn.isKnown()) {
-				Day startDay = startDayRtn.iterator().next().element;
-				String afterStart = startDayRtn.iterator().next().remainder;
-				Matcher matcher = sepPattern.matcher(afterStart);
-				if (matcher.find()) {
-					String last = afterStart.substring(matcher.end());
-					Maybe<ParseResult<Day>> endDayRtn = Day.parse(last);
-					if (endDayRtn.isKnown()) {
-						ParseResult<Day> endDayResult = endDayRtn.iterator().next();
-						DayRange dayRange = new DayRange(startDay.day, endDayResult.element.day);
-						return Maybe.definitely(new ParseResult<DayRange>(dayRange, endDayResult.remainder));
-					}
-				}
-			}
+			return parse(desc, 0, desc.length());
+		}
 
-			return Maybe.unknown();
+		public static Maybe<ParseResult<DayRange>> parse(CharSequence desc, int start, int end) {
+			TokenScanner scanner = new TokenScanner();
+			if (!scanner.scanDayRange(desc, start, end)) {
+				return Maybe.unknown();
+			}
+			DayRange dayRange = new DayRange(scanner.startDay, scanner.endDay);
+			return Maybe.definitely(new ParseResult<DayRange>(dayRange, scanner.end));
 		}
 
 		@Override
@@ -186,27 +437,36 @@ import java.util.regex.Pattern;
 		}
 
 		public static Maybe<ParseResult<Day>> parse(String desc) {
-			// Check this first, because the shortDays are a substring of the longDays
-			final Maybe<ParseResult<Day>> longResult = parse(longDays, desc);
-			if (longResult.isKnown()) {
-				return longResult;
-			}
-			else {
-				return parse(shortDays, desc);
+			return parse(desc, 0, desc.length());
+		}
+
+		public static Maybe<ParseResult<Day>> parse(CharSequence desc, int start, int end) {
+			TokenScanner scanner = new TokenScanner();
+			if (!scanner.scanDay(desc, start, end)) {
+				return Maybe.unknown();
 			}
+			return Maybe.definitely(new ParseResult<Day>(new Day(scanner.startDay), scanner.end));
 		}
 
-		private static Maybe<ParseResult<Day>> parse(String[] days, String desc) {
+		/**
+		 * Checks whether parse would find a day at start, without allocating anything.
+		 */
+		/* package */ static boolean matches(CharSequence desc, int start, int end) {
+			return find(longDays, desc, start, end) != 0 || find(shortDays, desc, start, end) != 0;
+		}
+
+		/**
+		 * @return The day whose name is at start and isn't followed by another letter, or 0 if there isn't one.
+		 */
+		private static int find(String[] days, CharSequence desc, int start, int end) {
 			for (int i=1;i<days.length;i++) {
-				Integer len = days[i].length();
-				boolean endsWithNonAlpha = (desc.length() <= len) || !isAlpha(desc.charAt(len));
-				if (desc.startsWith(days[i]) && endsWithNonAlpha) {
-					Day elm = new Day(i);
-					String rest = desc.substring(len);
-					return Maybe.definitely(new ParseResult<Day>(elm, rest));
+				int dayEnd = start + days[i].length();
+				boolean endsWithNonAlpha = (end <= dayEnd) || !isAlpha(Character.toLowerCase(desc.charAt(dayEnd)));
+				if (startsWith(desc, start, end, days[i]) && endsWithNonAlpha) {
+					return i;
 				}
 			}
-			return Maybe.unknown();
+			return 0;
 		}
 
 		private static boolean isAlpha(char c) {
@@ -267,9 +527,6 @@ import java.util.regex.Pattern;
 		// This can be after endTime if we're going over the day boundary
 		public final LocalTime startTime;
 		public final LocalTime endTime;
-		private final static Pattern timePattern =
-			Pattern.compile("(1?\\d)((?:|.)[0-5]\\d)?(am|pm)?( ?- ?)(1?\\d)((?:|.)[0-5]\\d)?(am|pm)?");
-
 		public final static LocalTime START_OF_DAY = new LocalTime(0,0);
 		public final static LocalTime END_OF_DAY = new LocalTime(23,59);
 		public final static TimeRange WHOLE_DAY = new TimeRange(START_OF_DAY, END_OF_DAY);
@@ -280,62 +537,22 @@ import java.util.regex.Pattern;
 		}
 
 		public static final Maybe<ParseResult<TimeRange>> parse(String desc) {
-			if (desc.startsWith("closed")) {
-				String remainder = desc.substring(6);
-				TimeRange empty = new TimeRange(new LocalTime(0,0), new LocalTime(0,0));
-				return Maybe.definitely(new ParseResult<TimeRange>(empty, remainder));
-			}
-
-			Matcher matcher = timePattern.matcher(desc);
+			return parse(desc, 0, desc.length());
+		}
 
-			if (!matcher.find() || matcher.start() != 0) {
+		public static final Maybe<ParseResult<TimeRange>> parse(CharSequence desc, int start, int end) {
+			TokenScanner scanner = new TokenScanner();
+			if (!scanner.scanTimeRange(desc, start, end)) {
 				return Maybe.unknown();
 			}
-			
-			Integer startHourBase = Integer.parseInt(matcher.group(1));
-			startHourBase = (startHourBase.equals(12)) ? 0 : startHourBase;
-			Integer endHourBase = Integer.parseInt(matcher.group(5));
-			endHourBase = (endHourBase.equals(12)) ? 0 : endHourBase;
-
-			Integer endHour;
-			if ("am".equals(matcher.group(7))) {
-				endHour = endHourBase;
-			}
-			else if ("pm".equals(matcher.group(7))) {
-				endHour = endHourBase + 12;
-			}
-			else {
-				return Maybe.unknown();
-			}
-
-			Integer startHour;
-			if ("am".equals(matcher.group(3))) {
-				startHour = startHourBase;
-			}
-			else if ("pm".equals(matcher.group(3))) {
-				startHour = startHourBase + 12;
-			}
-			else {
-				if (startHourBase >= endHourBase) {
-					if (endHour >= 12) {
-						startHour = startHourBase;
-					}
-					else {
-						startHour = startHourBase + 12;
-					}
-				}
-				else {
-					startHour = (endHour > 12) ? startHourBase + 12 : startHourBase;
-				}
-			}	
-
-			Integer startMinute = matcher.group(2) == null ? 0 : Integer.parseInt(matcher.group(2).substring(1));
-			Integer endMinute = matcher.group(6) == null ? 0 : Integer.parseInt(matcher.group(6).substring(1));
+			TimeRange timeRange = ofMinutes(scanner.startMinute, scanner.endMinute);
+			return Maybe.definitely(new ParseResult<TimeRange>(timeRange, scanner.end));
+		}
 
-			LocalTime startTime = new LocalTime(startHour, startMinute);
-			LocalTime endTime = new LocalTime(endHour, endMinute);
-			String rest = desc.substring(matcher.end());
-			return Maybe.definitely(new ParseResult<TimeRange>(new TimeRange(startTime, endTime), rest));
+		/* package */ static TimeRange ofMinutes(int startMinuteOfDay, int endMinuteOfDay) {
+			LocalTime startTime = new LocalTime(startMinuteOfDay / 60, startMinuteOfDay % 60);
+			LocalTime endTime = new LocalTime(endMinuteOfDay / 60, endMinuteOfDay % 60);
+			return new TimeRange(startTime, endTime);
 		}
 
 		@Override
@@ -377,10 +594,173 @@ import java.util.regex.Pattern;
 		}
 	}
 
+	/**
+	 * Reads the raw parts of a time range like "9:30am - 5pm" starting exactly at a given offset. This accepts the
+	 * same text as the pattern (1?\\d)((?:|.)[0-5]\\d)?(am|pm)?( ?- ?)(1?\\d)((?:|.)[0-5]\\d)?(am|pm)?
+	 * anchored at the offset, trying the alternatives in the same order a regex engine would, but without
+	 * looking at anything past the end of the match.
+	 */
+	/* package */ static final class TimeRangeScanner {
+		public static final int NO_MERIDIEM = 0;
+		public static final int AM = 1;
+		public static final int PM = 2;
+
+		public int startHour;
+		public int startMinute;
+		public int startMeridiem;
+		public int endHour;
+		public int endMinute;
+		public int endMeridiem;
+		/**
+		 * Offset just after the scanned range.
+		 */
+		public int end;
+
+		/**
+		 * Scans desc from start, filling in the public fields if there's a time range there.
+		 *
+		 * @return true if a time range was found, false otherwise.
+		 */
+		public boolean scan(CharSequence desc, int start, int limit) {
+			if (start >= limit || !isDigit(desc.charAt(start))) {
+				return false;
+			}
+
+			// The start time is the only part which may need backtracking, the hour can be one or two digits and
+			// the minutes can be directly after the hour, after any separator, or missing.
+			boolean twoDigitHour = desc.charAt(start) == '1' && start + 1 < limit && isDigit(desc.charAt(start + 1));
+			for (int hourLength = twoDigitHour ? 2 : 1; hourLength > 0; hourLength--) {
+				int afterHour = start + hourLength;
+				for (int minuteForm = 0; minuteForm < 3; minuteForm++) {
+					int position = afterHour;
+					int minute = 0;
+					if (minuteForm < 2) {
+						int separatorLength = (minuteForm == 0) ? 0 : anyCharLength(desc, position, limit);
+						boolean missingSeparator = (minuteForm == 1) && (separatorLength == 0);
+						if (missingSeparator || !isMinutes(desc, position + separatorLength, limit)) {
+							continue;
+						}
+						minute = readNumber(desc, position + separatorLength, 2);
+						position += separatorLength + 2;
+					}
+
+					int meridiem = meridiemAt(desc, position, limit);
+					position += (meridiem == NO_MERIDIEM) ? 0 : 2;
+
+					int afterSeparator = separatorEnd(desc, position, limit);
+					if (afterSeparator < 0) {
+						continue;
+					}
+
+					this.startHour = readNumber(desc, start, hourLength);
+					this.startMinute = minute;
+					this.startMeridiem = meridiem;
+					this.scanEndTime(desc, afterSeparator, limit);
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		/**
+		 * Nothing follows the end time, so the first alternative which matches is always the one used.
+		 */
+		private void scanEndTime(CharSequence desc, int start, int limit) {
+			boolean twoDigitHour = desc.charAt(start) == '1' && start + 1 < limit && isDigit(desc.charAt(start + 1));
+			int hourLength = twoDigitHour ? 2 : 1;
+			this.endHour = readNumber(desc, start, hourLength);
+
+			int position = start + hourLength;
+			this.endMinute = 0;
+			if (isMinutes(desc, position, limit)) {
+				this.endMinute = readNumber(desc, position, 2);
+				position += 2;
+			}
+			else {
+				int separatorLength = anyCharLength(desc, position, limit);
+				if (separatorLength > 0 && isMinutes(desc, position + separatorLength, limit)) {
+					this.endMinute = readNumber(desc, position + separatorLength, 2);
+					position += separatorLength + 2;
+				}
+			}
+
+			this.endMeridiem = meridiemAt(desc, position, limit);
+			this.end = position + ((this.endMeridiem == NO_MERIDIEM) ? 0 : 2);
+		}
+
+		/**
+		 * Matches " ?- ?" followed by a digit.
+		 *
+		 * @return the offset of the digit, or -1 if there's no separator.
+		 */
+		private static int separatorEnd(CharSequence desc, int position, int limit) {
+			if (position < limit && desc.charAt(position) == ' ') {
+				position++;
+			}
+			if (position >= limit || desc.charAt(position) != '-') {
+				return -1;
+			}
+			position++;
+			if (position + 1 < limit && desc.charAt(position) == ' ' && isDigit(desc.charAt(position + 1))) {
+				position++;
+			}
+			return (position < limit && isDigit(desc.charAt(position))) ? position : -1;
+		}
+
+		private static boolean isMinutes(CharSequence desc, int position, int limit) {
+			if (position + 1 >= limit) {
+				return false;
+			}
+			char tens = desc.charAt(position);
+			return tens >= '0' && tens <= '5' && isDigit(desc.charAt(position + 1));
+		}
+
+		private static int meridiemAt(CharSequence desc, int position, int limit) {
+			if (position + 1 >= limit || Character.toLowerCase(desc.charAt(position + 1)) != 'm') {
+				return NO_MERIDIEM;
+			}
+			char first = Character.toLowerCase(desc.charAt(position));
+			return (first == 'a') ? AM : (first == 'p') ? PM : NO_MERIDIEM;
+		}
+
+		/**
+		 * How many chars the regex "." would match at position, 0 if it can't match.
+		 */
+		private static int anyCharLength(CharSequence desc, int position, int limit) {
+			if (position >= limit) {
+				return 0;
+			}
+			char c = desc.charAt(position);
+			if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+				return 0;
+			}
+			boolean surrogatePair = Character.isHighSurrogate(c) && position + 1 < limit
+					&& Character.isLowSurrogate(desc.charAt(position + 1));
+			return surrogatePair ? 2 : 1;
+		}
+
+		private static int readNumber(CharSequence desc, int position, int length) {
+			int result = 0;
+			for (int i=position;i<position + length;i++) {
+				result = result * 10 + (desc.charAt(i) - '0');
+			}
+			return result;
+		}
+
+		private static boolean isDigit(char c) {
+			return c >= '0' && c <= '9';
+		}
+	}
+
 	/* package */ static final class Comma implements TimeDescriptionElement {
 		public static Maybe<ParseResult<Comma>> parse(String desc) {
-			if (desc.startsWith(",")) {
-				return Maybe.definitely(new ParseResult<Comma>(new Comma(), desc.substring(1)));
+			return parse(desc, 0, desc.length());
+		}
+
+		public static Maybe<ParseResult<Comma>> parse(CharSequence desc, int start, int end) {
+			if (start < end && desc.charAt(start) == ',') {
+				return Maybe.definitely(new ParseResult<Comma>(new Comma(), start + 1));
 			}
 			return Maybe.unknown();
 		}
@@ -406,10 +786,13 @@ import java.util.regex.Pattern;
 
 	/* package */ static class ParseResult<T extends TimeDescriptionElement> {
 		public final T element;
-		public final String remainder;
-		public ParseResult(T element, String remainder) {
+		/**
+		 * Offset in the parsed sequence just after the element.
+		 */
+		public final int end;
+		public ParseResult(T element, int end) {
 			this.element = element;
-			this.remainder = remainder;
+			this.end = end;
 		}
 	}
 }
\ No newline at end of file
@@ -1,11 +1,17 @@
 package timesparser;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
 
-import timesparser.TimeDescriptionParser.TimeDescriptionElement;
-import timesparser.WeekIntervals.DayLocalInterval;
-import timesparser.WeekIntervals.DayLocalTime;
-import timesparser.TimeDescriptionParser.*;
+import timesparser.TimeDescriptionParser.TokenScanner;
+import timesparser.TimeParserMetrics.FailureCause;
 
 /**
  * Responsible for extracting a set of time ranges from a description string. This is the entry point to the module.
@@ -13,6 +19,29 @@ import timesparser.TimeDescriptionParser.*;
  * Will attempt to parse things which look like this: Mon-Fri 11-3pm, Saturday closed, Sun 11pm-2
  */
 public class TimeExtractor {
+	/**
+	 * Returned by parseTimes with an IntervalSink when the description was parsed.
+	 */
+	public static final int PARSED = 0;
+	/**
+	 * Returned by parseTimes with an IntervalSink when the description had no days in it.
+	 */
+	public static final int NO_DAYS = 1;
+	/**
+	 * Returned by parseTimes with an IntervalSink when a time came before any day.
+	 */
+	public static final int MISSING_DAY = 2;
+	/**
+	 * Returned by parseTimes with an IntervalSink when a comma separated chunk other than the last had no time.
+	 */
+	public static final int MISSING_TIME = 3;
+
+	/**
+	 * The metrics failure cause for each status.
+	 */
+	private static final FailureCause[] failureCauses =
+		{null, FailureCause.NO_DAYS, FailureCause.MISSING_DAY, FailureCause.MISSING_TIME};
+
 	/**
 	 * Attempts to parse the given string into a set of time ranges for the week.
 	 * 
@@ -20,91 +49,365 @@ public class TimeExtractor {
 	 * @return unknown if a parse error occurred, definitely if successful parse.
 	 */
 	public static Maybe<WeekIntervals> parseTimes(String times) {
-		List<TimeDescriptionElement> tokens = TimeDescriptionParser.parse(times);
-		if (tokens.isEmpty()) return Maybe.unknown();
-
-		WeekIntervals intervals = new WeekIntervals();
-		Integer index = 0;
-		TimeDescriptionElement dayBuffer = null;
-		while (index < tokens.size()) {
-			Integer separatorIndex = findNextCommaOrEnd(tokens, index);
-			Integer dayIndex = findNextDay(tokens, index);
-			Integer timeIndex = findNextTimeRange(tokens, index);
-			boolean separatorIsEnd = separatorIndex.equals(tokens.size());
-			boolean noDayInCurrentChunk = (dayIndex.equals(-1)) || (dayIndex > separatorIndex);
-			boolean noTimeInCurrentChunk = (timeIndex.equals(-1)) || (timeIndex > separatorIndex);
-			if (noTimeInCurrentChunk && !separatorIsEnd) return Maybe.unknown();
-
-			if (dayBuffer == null && noDayInCurrentChunk) return Maybe.unknown();
-			if (!noDayInCurrentChunk) dayBuffer = tokens.get(dayIndex);
-
-			TimeRange timeBuffer = (noTimeInCurrentChunk) ? TimeRange.WHOLE_DAY : (TimeRange) tokens.get(timeIndex);
-
-			if (!timeBuffer.startTime.equals(timeBuffer.endTime)) {
-				// Account for the case where we're going over the day boundary
-				TimeRange currDayTimes = timeBuffer;
-				TimeRange nextDayTimes = null;
-				if (timeBuffer.startTime.isAfter(timeBuffer.endTime)) {
-					currDayTimes = new TimeRange(timeBuffer.startTime, TimeRange.END_OF_DAY);
-					nextDayTimes = new TimeRange(TimeRange.START_OF_DAY, timeBuffer.endTime);
-				}
+		return parseTimes(times, 0, times.length());
+	}
 
-				@SuppressWarnings("unchecked")
-				Iterable<Integer> days = (Iterable<Integer>) dayBuffer;
-				for (Integer day : days) {
-					if (nextDayTimes != null) {
-						Integer nextDay = Day.nextDay(day);
-						DayLocalTime startDayTime = new DayLocalTime(nextDay, nextDayTimes.startTime);
-						DayLocalTime endDayTime = new DayLocalTime(nextDay, nextDayTimes.endTime);
-						intervals = intervals.add(new DayLocalInterval(startDayTime, endDayTime));
-					}
-
-					DayLocalTime startDayTime = new DayLocalTime(day, currDayTimes.startTime);
-					DayLocalTime endDayTime = new DayLocalTime(day, currDayTimes.endTime);
-					intervals = intervals.add(new DayLocalInterval(startDayTime, endDayTime));
-				}
+	/**
+	 * Attempts to parse part of the given character sequence into a set of time ranges for the week. The characters
+	 * are read in place, so this can be used on a slice of a larger buffer without copying it.
+	 *
+	 * @param times A character sequence containing the description to parse.
+	 * @param start Offset of the first character of the description.
+	 * @param end Offset just after the last character of the description.
+	 * @return unknown if a parse error occurred, definitely if successful parse.
+	 */
+	public static Maybe<WeekIntervals> parseTimes(CharSequence times, int start, int end) {
+		checkBounds(times, start, end);
+
+		ParseContext context = ParseContext.acquire();
+		try {
+			if (parse(context, times, start, end) != PARSED) {
+				return Maybe.unknown();
 			}
+			return Maybe.definitely(context.intervals.build());
+		}
+		finally {
+			context.release();
+		}
+	}
+
+	/**
+	 * Parses part of the given character sequence like parseTimes, but hands the intervals to a sink rather than
+	 * building a WeekIntervals. Nothing is allocated, so this suits ingest code which writes intervals straight into
+	 * its own storage.
+	 *
+	 * The sink is given the same intervals a WeekIntervals would hold: sorted, merged where they overlap, and each
+	 * within one day. It's only called once the whole description has parsed, so it's given nothing on failure.
+	 *
+	 * @param times A character sequence containing the description to parse.
+	 * @param start Offset of the first character of the description.
+	 * @param end Offset just after the last character of the description.
+	 * @param sink Where to send the intervals.
+	 * @return PARSED if successful, otherwise NO_DAYS, MISSING_DAY or MISSING_TIME saying why not.
+	 */
+	public static int parseTimes(CharSequence times, int start, int end, IntervalSink sink) {
+		checkBounds(times, start, end);
+
+		ParseContext context = ParseContext.acquire();
+		try {
+			int status = parse(context, times, start, end);
+			if (status == PARSED) {
+				context.intervals.sendTo(sink);
+			}
+			return status;
+		}
+		finally {
+			context.release();
+		}
+	}
 
-			index = separatorIndex.equals(-1) ? tokens.size() : separatorIndex + 1;
+	private static void checkBounds(CharSequence times, int start, int end) {
+		if (start < 0 || end > times.length() || start > end) {
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + times.length());
 		}
+	}
+
+	/**
+	 * Sets where parse and query measurements are reported, for every thread. Pass TimeParserMetrics.NOOP, or null,
+	 * to stop reporting, which is the default.
+	 *
+	 * This is meant to be called once at startup, before the threads which parse and query start. The setting isn't
+	 * volatile, so that checking it costs queries next to nothing, and threads already running may not see a change
+	 * straight away.
+	 *
+	 * @param metrics The listener to report to.
+	 */
+	public static void setMetrics(TimeParserMetrics metrics) {
+		MetricsHolder.metrics = (metrics == null) ? TimeParserMetrics.NOOP : metrics;
+	}
 
-		return Maybe.definitely(intervals);
+	/* package */ static TimeParserMetrics getMetrics() {
+		return MetricsHolder.metrics;
 	}
 
-	private static Integer findNextDay(List<TimeDescriptionElement> tokens, Integer startIndex) {
-		assert(startIndex < tokens.size());
-		for(Integer i=startIndex;i<tokens.size();i++) {
-			boolean isDayRange = tokens.get(i) instanceof DayRange;
-			boolean isDay = tokens.get(i) instanceof Day;
-			if (isDayRange || isDay) {
-				return i;
+	/**
+	 * Extracts the description's intervals into the context, reporting to the metrics if there are any.
+	 *
+	 * @return PARSED or the reason for failing.
+	 */
+	private static int parse(ParseContext context, CharSequence times, int start, int end) {
+		TimeParserMetrics metrics = MetricsHolder.metrics;
+		if (metrics == TimeParserMetrics.NOOP) {
+			return extract(context, times, start, end);
+		}
+
+		long began = System.nanoTime();
+		int status = extract(context, times, start, end);
+		long nanos = System.nanoTime() - began;
+		TokenScanner scanner = context.scanner;
+		if (status == PARSED) {
+			metrics.parseSucceeded(nanos, scanner.getTokenCount(), scanner.getSkippedChars());
+		}
+		else {
+			metrics.parseFailed(failureCauses[status], nanos, scanner.getTokenCount(), scanner.getSkippedChars());
+		}
+		return status;
+	}
+
+	/**
+	 * Reads the tokens into the context's intervals.
+	 *
+	 * @return PARSED if the context's intervals now hold the description's times, otherwise the reason for failing.
+	 */
+	private static int extract(ParseContext context, CharSequence times, int start, int end) {
+		// Every successful parse has a day in it, so free text like "call for hours" can be turned away with one
+		// cheap scan, before the scanner is even given the text
+		if (!TimeDescriptionParser.mayContainDay(times, start, end)) return NO_DAYS;
+
+		TokenScanner scanner = context.scanner;
+		WeekIntervals.Builder intervals = context.intervals;
+		scanner.reset(times, start, end);
+		intervals.clear();
+
+		// The chunks are separated by commas. A chunk without a day uses the days from the previous chunk, and only
+		// the last chunk may leave out the time, meaning the whole day. Days are kept as bitmasks of Calendar days.
+		boolean seenToken = false;
+		int dayBuffer = 0;
+		int chunkDays = 0;
+		boolean chunkHasTime = false;
+		int chunkStart = 0;
+		int chunkEnd = 0;
+		boolean chunkEmpty = true;
+		while (scanner.next()) {
+			seenToken = true;
+			if (scanner.type == TokenScanner.COMMA) {
+				if (!chunkHasTime) return MISSING_TIME;
+				if (dayBuffer == 0 && chunkDays == 0) return MISSING_DAY;
+				if (chunkDays != 0) dayBuffer = chunkDays;
+				addChunk(intervals, dayBuffer, chunkStart, chunkEnd);
+
+				chunkDays = 0;
+				chunkHasTime = false;
+				chunkEmpty = true;
+				continue;
+			}
+
+			chunkEmpty = false;
+			boolean isDay = (scanner.type == TokenScanner.DAY_RANGE) || (scanner.type == TokenScanner.DAY);
+			if (isDay && chunkDays == 0) chunkDays = dayMask(scanner.startDay, scanner.endDay);
+			if (scanner.type == TokenScanner.TIME_RANGE && !chunkHasTime) {
+				chunkHasTime = true;
+				chunkStart = scanner.startMinute;
+				chunkEnd = scanner.endMinute;
 			}
 		}
 
-		return -1;
+		if (!seenToken) return NO_DAYS;
+
+		if (!chunkEmpty) {
+			if (dayBuffer == 0 && chunkDays == 0) return MISSING_DAY;
+			if (chunkDays != 0) dayBuffer = chunkDays;
+			if (chunkHasTime) {
+				addChunk(intervals, dayBuffer, chunkStart, chunkEnd);
+			}
+			else {
+				addChunk(intervals, dayBuffer, 0, WeekIntervals.MINUTES_PER_DAY - 1);
+			}
+		}
+
+		return PARSED;
+	}
+
+	/**
+	 * @return A mask with bit d set for each Calendar day d from startDay round to endDay.
+	 */
+	private static int dayMask(int startDay, int endDay) {
+		int mask = 0;
+		for (int day = startDay; ; day = nextDay(day)) {
+			mask |= 1 << day;
+			if (day == endDay) return mask;
+		}
 	}
 
-	private static Integer findNextCommaOrEnd(List<TimeDescriptionElement> tokens, Integer startIndex) {
-		assert(startIndex < tokens.size());
-		for(Integer i=startIndex;i<tokens.size();i++) {
-			boolean isComma = tokens.get(i) instanceof Comma;
-			if (isComma) {
-				return i;
+	private static int nextDay(int day) {
+		return (day == Calendar.SATURDAY) ? Calendar.SUNDAY : day + 1;
+	}
+
+	/**
+	 * Parses a batch of descriptions in parallel on the common fork-join pool. Repeated descriptions are only parsed
+	 * once.
+	 *
+	 * @param times The strings to parse.
+	 * @return The result of parseTimes for each string, in the same order as the input.
+	 */
+	public static List<Maybe<WeekIntervals>> parseAll(List<String> times) {
+		return parseAll(times, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Parses a batch of descriptions in parallel on the given fork-join pool. Repeated descriptions are only parsed
+	 * once.
+	 *
+	 * @param times The strings to parse.
+	 * @param pool The pool to parse on.
+	 * @return The result of parseTimes for each string, in the same order as the input.
+	 */
+	public static List<Maybe<WeekIntervals>> parseAll(List<String> times, ForkJoinPool pool) {
+		return parseAll(times.toArray(new String[times.size()]), pool);
+	}
+
+	/**
+	 * @see #parseAll(List)
+	 */
+	public static List<Maybe<WeekIntervals>> parseAll(String[] times) {
+		return parseAll(times, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @see #parseAll(List, ForkJoinPool)
+	 */
+	public static List<Maybe<WeekIntervals>> parseAll(String[] times, ForkJoinPool pool) {
+		Map<String, Integer> uniqueIndexes = new HashMap<String, Integer>();
+		List<String> unique = new ArrayList<String>();
+		int[] inputToUnique = new int[times.length];
+		for (int i=0;i<times.length;i++) {
+			Integer index = uniqueIndexes.get(times[i]);
+			if (index == null) {
+				index = unique.size();
+				uniqueIndexes.put(times[i], index);
+				unique.add(times[i]);
 			}
+			inputToUnique[i] = index;
+		}
+
+		Maybe<WeekIntervals>[] uniqueResults = newResults(unique.size());
+		pool.invoke(new ParseAllTask(unique.toArray(new String[unique.size()]), uniqueResults, 0, unique.size()));
+
+		Maybe<WeekIntervals>[] results = newResults(times.length);
+		for (int i=0;i<times.length;i++) {
+			results[i] = uniqueResults[inputToUnique[i]];
 		}
+		return Arrays.asList(results);
+	}
 
-		return tokens.size();
+	/**
+	 * Java can't make generic arrays, so this is the one place an unchecked one is made.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static Maybe<WeekIntervals>[] newResults(int size) {
+		return new Maybe[size];
+	}
+
+	/**
+	 * @see #parseAll(List)
+	 */
+	public static List<Maybe<WeekIntervals>> parseAll(Stream<String> times) {
+		return parseAll(times, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @see #parseAll(List, ForkJoinPool)
+	 */
+	public static List<Maybe<WeekIntervals>> parseAll(Stream<String> times, ForkJoinPool pool) {
+		return parseAll(times.toArray(String[]::new), pool);
 	}
 
-	private static Integer findNextTimeRange(List<TimeDescriptionElement> tokens, Integer startIndex) {
-		assert(startIndex < tokens.size());
-		for(Integer i=startIndex;i<tokens.size();i++) {
-			boolean isTimeRange = tokens.get(i) instanceof TimeRange;
-			if (isTimeRange) {
-				return i;
+	/**
+	 * Parses a range of a batch, splitting it in half until the ranges are small enough to be worth a thread.
+	 */
+	private static class ParseAllTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int BATCH_SIZE = 64;
+
+		private final String[] times;
+		private final Maybe<WeekIntervals>[] results;
+		private final int start;
+		private final int end;
+
+		public ParseAllTask(String[] times, Maybe<WeekIntervals>[] results, int start, int end) {
+			this.times = times;
+			this.results = results;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.end - this.start <= BATCH_SIZE) {
+				for (int i=this.start;i<this.end;i++) {
+					this.results[i] = parseTimes(this.times[i]);
+				}
+				return;
 			}
+
+			int middle = (this.start + this.end) >>> 1;
+			invokeAll(new ParseAllTask(this.times, this.results, this.start, middle),
+					new ParseAllTask(this.times, this.results, middle, this.end));
 		}
+	}
 
-		return -1;
+	/**
+	 * @param days A mask of Calendar days, see dayMask.
+	 * @param startMinute The minute of the day the chunk's time starts.
+	 * @param endMinute The minute of the day it ends, which is before startMinute if it goes past midnight.
+	 */
+	private static void addChunk(WeekIntervals.Builder intervals, int days, int startMinute, int endMinute) {
+		if (startMinute == endMinute) {
+			return;
+		}
+
+		// Hours such as "15pm" scan past midnight; clamp them to the end of their own day
+		int lastMinute = WeekIntervals.MINUTES_PER_DAY - 1;
+		for (int day = Calendar.SUNDAY; day <= Calendar.SATURDAY; day++) {
+			if ((days & (1 << day)) == 0) continue;
+
+			int dayStart = WeekIntervals.minuteOfWeek(day, 0, 0);
+			// Account for the case where we're going over the day boundary
+			if (startMinute > endMinute) {
+				int nextDayStart = WeekIntervals.minuteOfWeek(nextDay(day), 0, 0);
+				intervals.add(nextDayStart, nextDayStart + Math.min(endMinute, lastMinute));
+				if (startMinute <= lastMinute) {
+					intervals.add(dayStart + startMinute, dayStart + lastMinute);
+				}
+			}
+			else if (startMinute <= lastMinute) {
+				intervals.add(dayStart + startMinute, dayStart + Math.min(endMinute, lastMinute));
+			}
+		}
+	}
+
+	/**
+	 * The scratch space for parsing, reused by each thread so that parsing allocates nothing but its result.
+	 */
+	private static final class ParseContext {
+		private static final ThreadLocal<ParseContext> contexts = new ThreadLocal<ParseContext>() {
+			@Override
+			protected ParseContext initialValue() {
+				return new ParseContext();
+			}
+		};
+
+		private final TokenScanner scanner = new TokenScanner();
+		private final WeekIntervals.Builder intervals = new WeekIntervals.Builder();
+		private boolean inUse;
+
+		public static ParseContext acquire() {
+			ParseContext context = contexts.get();
+			// A sink may parse another description from inside accept, which mustn't clobber the outer parse
+			if (context.inUse) {
+				return new ParseContext();
+			}
+			context.inUse = true;
+			return context;
+		}
+
+		/**
+		 * Gives the context back once the caller is done with it. Parses can stop anywhere in the description, so
+		 * this is where the scanner lets go of it, rather than keeping a caller's buffer reachable from the thread.
+		 */
+		public void release() {
+			this.scanner.clear();
+			this.inUse = false;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,126 @@
+package timesparser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache in front of TimeExtractor.parseTimes, for feeds which send the same few descriptions over and
+ * over. Failed parses are cached as well as successful ones. WeekIntervals is immutable, so cached results can be
+ * handed to any number of callers.
+ *
+ * The cache is split into independently locked segments, each evicting its least recently used entry when full, so
+ * it's safe and reasonably cheap to share between threads.
+ */
+public class TimeExtractorCache {
+	private static final int MAX_SEGMENTS = 16;
+
+	private final Segment[] segments;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param maximumSize The most descriptions to keep results for.
+	 */
+	public TimeExtractorCache(int maximumSize) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("maximumSize must be positive, got " + maximumSize);
+		}
+
+		this.segments = new Segment[Math.min(MAX_SEGMENTS, maximumSize)];
+		for (int i=0;i<this.segments.length;i++) {
+			int extra = (i < maximumSize % this.segments.length) ? 1 : 0;
+			this.segments[i] = new Segment(maximumSize / this.segments.length + extra);
+		}
+	}
+
+	/**
+	 * Same as TimeExtractor.parseTimes, but returns the cached result if the description has been seen recently.
+	 *
+	 * @param times A string to parse.
+	 * @return unknown if a parse error occurred, definitely if successful parse.
+	 */
+	public Maybe<WeekIntervals> parseTimes(String times) {
+		Segment segment = this.segmentFor(times);
+		Maybe<WeekIntervals> result;
+		synchronized (segment) {
+			result = segment.get(times);
+		}
+
+		if (result != null) {
+			this.hits.increment();
+			return result;
+		}
+
+		// Parse outside the lock, occasionally two threads will both parse the same string, which is harmless
+		this.misses.increment();
+		result = TimeExtractor.parseTimes(times);
+		synchronized (segment) {
+			segment.put(times, result);
+		}
+		return result;
+	}
+
+	/**
+	 * @return How many calls to parseTimes were answered from the cache.
+	 */
+	public long getHitCount() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * @return How many calls to parseTimes had to parse the description.
+	 */
+	public long getMissCount() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * @return How many results have been dropped to make room for newer ones.
+	 */
+	public long getEvictionCount() {
+		return this.evictions.sum();
+	}
+
+	/**
+	 * @return The number of descriptions currently cached.
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	private Segment segmentFor(String times) {
+		int hash = times.hashCode();
+		hash ^= (hash >>> 16);
+		return this.segments[(hash & Integer.MAX_VALUE) % this.segments.length];
+	}
+
+	/**
+	 * LinkedHashMap in access order drops its least recently used entry for us.
+	 */
+	private class Segment extends LinkedHashMap<String, Maybe<WeekIntervals>> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		public Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Maybe<WeekIntervals>> eldest) {
+			if (this.size() > this.capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package timesparser;
+
+/**
+ * Receives measurements from the parse and query paths, for hooking the library up to whatever metrics system you
+ * use. Install one with TimeExtractor.setMetrics. Implementations are called from whichever threads are parsing or
+ * querying, so must be thread safe, and should be cheap since they're called on every parse.
+ *
+ * Nothing is measured while NOOP is installed, which is the default.
+ */
+public interface TimeParserMetrics {
+	/**
+	 * Why parseTimes returned unknown.
+	 */
+	enum FailureCause {
+		/**
+		 * There were no day names anywhere in the description, so it was rejected without being tokenized.
+		 */
+		NO_DAYS,
+		/**
+		 * A time came before any day.
+		 */
+		MISSING_DAY,
+		/**
+		 * A comma separated chunk other than the last had no time.
+		 */
+		MISSING_TIME
+	}
+
+	/**
+	 * Reports nothing. TimeExtractor and WeekIntervals check for this instance and skip timing altogether.
+	 */
+	TimeParserMetrics NOOP = new TimeParserMetrics() {
+		public void parseSucceeded(long nanos, int tokens, int skippedChars) {}
+		public void parseFailed(FailureCause cause, long nanos, int tokens, int skippedChars) {}
+		public void containsQueried(int queries) {}
+	};
+
+	/**
+	 * Called after parseTimes returns a result.
+	 *
+	 * @param nanos How long the parse took.
+	 * @param tokens How many days, times and commas were read.
+	 * @param skippedChars How many characters were skipped over because they weren't part of any token.
+	 */
+	void parseSucceeded(long nanos, int tokens, int skippedChars);
+
+	/**
+	 * Called after parseTimes returns unknown. Parsing stops at the first problem, so the counts only cover the
+	 * description up to there.
+	 *
+	 * @param cause Why the parse failed.
+	 * @param nanos How long the parse took.
+	 * @param tokens How many days, times and commas were read.
+	 * @param skippedChars How many characters were skipped over because they weren't part of any token.
+	 */
+	void parseFailed(FailureCause cause, long nanos, int tokens, int skippedChars);
+
+	/**
+	 * Called when WeekIntervals is asked whether it contains some times.
+	 *
+	 * @param queries How many times were checked, more than one for containsAll.
+	 */
+	void containsQueried(int queries);
+}
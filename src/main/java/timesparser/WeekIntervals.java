@@ -1,8 +1,16 @@
 package timesparser;
 
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Calendar;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * An immutable collection of time intervals in a week, e.g. Mon-Fri 11-2pm, Sat 9am-3pm. Allows user to check
@@ -11,24 +19,55 @@ import java.util.Set;
  * Note that WeekIntervals doesn't know about timezones.
  */
 public class WeekIntervals {
-	private final Set<DayLocalInterval> intervals;
+	/* package */ static final int MINUTES_PER_DAY = 24 * 60;
+	/* package */ static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+	private static final long[] NO_INTERVALS = new long[0];
+
+	/**
+	 * Canonical instances handed out by intern(). The values are weak too, since they refer to their own keys.
+	 */
+	private static final Map<WeekIntervals, WeakReference<WeekIntervals>> internPool =
+		new WeakHashMap<WeekIntervals, WeakReference<WeekIntervals>>();
+
+	/**
+	 * Packed by DayLocalInterval.pack, sorted by start time, and never overlapping, so the end times are sorted too.
+	 * Never modified once the WeekIntervals is constructed.
+	 */
+	private final long[] intervals;
+	/**
+	 * Cached hashCode, 0 until it's first calculated.
+	 */
+	private int hash;
+	/**
+	 * Cached opening and closing times, null until first needed.
+	 */
+	private volatile WeekTransitions transitions;
 
 	/* package */ WeekIntervals() {
-		this.intervals = new HashSet<DayLocalInterval>();
+		this.intervals = NO_INTERVALS;
 	}
 
-	private WeekIntervals(Set<DayLocalInterval> intervals) {
+	private WeekIntervals(long[] intervals) {
 		this.intervals = intervals;
 	}
 
 	/* package */ boolean contains(DayLocalTime time) {
-		for(DayLocalInterval interval : this.intervals) {
-			if (interval.contains(time)) {
-				return true;
-			}
-		}
+		return this.contains(time.getMinuteOfWeek());
+	}
 
-		return false;
+	/* package */ boolean contains(int minuteOfWeek) {
+		TimeParserMetrics metrics = MetricsHolder.metrics;
+		if (metrics != TimeParserMetrics.NOOP) metrics.containsQueried(1);
+		return this.covers(minuteOfWeek);
+	}
+
+	/**
+	 * contains without counting the query in the metrics, for indexes which check a schedule per candidate venue.
+	 */
+	/* package */ boolean covers(int minuteOfWeek) {
+		int index = this.firstStartingAfter(minuteOfWeek) - 1;
+		return index >= 0 && DayLocalInterval.endOf(this.intervals[index]) >= minuteOfWeek;
 	}
 
 	/**
@@ -40,11 +79,254 @@ public class WeekIntervals {
 	 * @return true if the given time is contained, false otherwise.
 	 */
 	public boolean contains(Calendar time) {
-		Integer day = time.get(Calendar.DAY_OF_WEEK);
-		Integer hour = time.get(Calendar.HOUR_OF_DAY);
-		Integer minute = time.get(Calendar.MINUTE);
+		return this.contains(minuteOfWeek(time));
+	}
 
-		return this.contains(new DayLocalTime(day, new LocalTime(hour, minute)));
+	/**
+	 * Checks whether WeekIntervals contains the given time.
+	 *
+	 * @param time The time to check for
+	 * @return true if the given time is contained, false otherwise.
+	 */
+	public boolean contains(LocalDateTime time) {
+		return this.contains(minuteOfWeek(time));
+	}
+
+	/**
+	 * Checks whether WeekIntervals contains the given time, using its local time in its own zone.
+	 *
+	 * @param time The time to check for
+	 * @return true if the given time is contained, false otherwise.
+	 */
+	public boolean contains(ZonedDateTime time) {
+		return this.contains(time.toLocalDateTime());
+	}
+
+	/**
+	 * Checks whether WeekIntervals contains the given instant, using its local time in the given zone. The zone's UTC
+	 * offsets are cached, so this doesn't allocate anything for most calls.
+	 *
+	 * @param epochMillis Milliseconds since 1970-01-01T00:00Z.
+	 * @param zone The zone the intervals are in.
+	 * @return true if the given time is contained, false otherwise.
+	 */
+	public boolean contains(long epochMillis, ZoneId zone) {
+		return this.contains(ZoneOffsetCache.minuteOfWeek(epochMillis, zone));
+	}
+
+	/**
+	 * Checks many times against these intervals at once. This converts the intervals to a bitmap once and looks each
+	 * time up in it, which is much cheaper than calling contains for each time when there are lots of them.
+	 *
+	 * @param minutesOfWeek The times to check, as minutes since the start of Sunday (Calendar's first day of the week),
+	 *                      from 0 to 7 * 24 * 60 - 1.
+	 * @return A BitSet with bit i set if minutesOfWeek[i] is contained.
+	 */
+	public BitSet containsAll(int[] minutesOfWeek) {
+		TimeParserMetrics metrics = MetricsHolder.metrics;
+		if (metrics != TimeParserMetrics.NOOP) metrics.containsQueried(minutesOfWeek.length);
+
+		WeekIntervalsBitmap bitmap = this.toBitmap();
+		BitSet result = new BitSet(minutesOfWeek.length);
+		for (int i=0;i<minutesOfWeek.length;i++) {
+			if (minutesOfWeek[i] < 0 || minutesOfWeek[i] >= MINUTES_PER_WEEK) {
+				throw new IllegalArgumentException("Not a minute of the week: " + minutesOfWeek[i]);
+			}
+			if (bitmap.contains(minutesOfWeek[i])) {
+				result.set(i);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Checks many instants against these intervals at once, using their local times in the given zone. See
+	 * containsAll(int[]).
+	 *
+	 * @param epochMillis The times to check, in milliseconds since 1970-01-01T00:00Z.
+	 * @param zone The zone the intervals are in.
+	 * @return A BitSet with bit i set if epochMillis[i] is contained.
+	 */
+	public BitSet containsAll(long[] epochMillis, ZoneId zone) {
+		TimeParserMetrics metrics = MetricsHolder.metrics;
+		if (metrics != TimeParserMetrics.NOOP) metrics.containsQueried(epochMillis.length);
+
+		WeekIntervalsBitmap bitmap = this.toBitmap();
+		BitSet result = new BitSet(epochMillis.length);
+		for (int i=0;i<epochMillis.length;i++) {
+			if (bitmap.contains(ZoneOffsetCache.minuteOfWeek(epochMillis[i], zone))) {
+				result.set(i);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the next time after the given one when the intervals open. Intervals which run into each other, like the
+	 * two days of an overnight interval, count as one, and the search wraps around from the end of the week.
+	 *
+	 * Note that WeekIntervals doesn't know about timezones.
+	 *
+	 * @param time The time to search from, only its minute matters.
+	 * @return The first minute strictly after time's minute which starts an open period, unknown if there isn't one
+	 *         because the intervals are empty or cover the whole week.
+	 */
+	public Maybe<Calendar> nextOpening(Calendar time) {
+		return minutesLater(time, this.getTransitions().minutesUntilOpening(minuteOfWeek(time)));
+	}
+
+	/**
+	 * Finds the next time after the given one when the intervals close, joining up intervals like nextOpening does.
+	 * Intervals include their end time, so this is the last minute of the open period, e.g. 17:00 for 9-5pm.
+	 *
+	 * Note that WeekIntervals doesn't know about timezones.
+	 *
+	 * @param time The time to search from, only its minute matters.
+	 * @return The first minute strictly after time's minute which ends an open period, unknown if there isn't one
+	 *         because the intervals are empty or cover the whole week.
+	 */
+	public Maybe<Calendar> nextClosing(Calendar time) {
+		return minutesLater(time, this.getTransitions().minutesUntilClosing(minuteOfWeek(time)));
+	}
+
+	/**
+	 * @see #nextOpening(Calendar)
+	 */
+	public Maybe<LocalDateTime> nextOpening(LocalDateTime time) {
+		return minutesLater(time, this.getTransitions().minutesUntilOpening(minuteOfWeek(time)));
+	}
+
+	/**
+	 * @see #nextClosing(Calendar)
+	 */
+	public Maybe<LocalDateTime> nextClosing(LocalDateTime time) {
+		return minutesLater(time, this.getTransitions().minutesUntilClosing(minuteOfWeek(time)));
+	}
+
+	/**
+	 * @see #nextOpening(Calendar)
+	 */
+	public Maybe<ZonedDateTime> nextOpening(ZonedDateTime time) {
+		return atZone(this.nextOpening(time.toLocalDateTime()), time.getZone());
+	}
+
+	/**
+	 * @see #nextClosing(Calendar)
+	 */
+	public Maybe<ZonedDateTime> nextClosing(ZonedDateTime time) {
+		return atZone(this.nextClosing(time.toLocalDateTime()), time.getZone());
+	}
+
+	private WeekTransitions getTransitions() {
+		WeekTransitions result = this.transitions;
+		if (result == null) {
+			result = WeekTransitions.of(this);
+			this.transitions = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Moves forward by a number of minutes of wall clock time, so the result has the expected time of day even
+	 * across daylight saving changes.
+	 */
+	private static Maybe<Calendar> minutesLater(Calendar time, int minutes) {
+		if (minutes < 0) {
+			return Maybe.unknown();
+		}
+		int minuteOfDay = time.get(Calendar.HOUR_OF_DAY) * 60 + time.get(Calendar.MINUTE) + minutes;
+		Calendar result = (Calendar) time.clone();
+		result.set(Calendar.SECOND, 0);
+		result.set(Calendar.MILLISECOND, 0);
+		result.add(Calendar.DAY_OF_MONTH, minuteOfDay / MINUTES_PER_DAY);
+		result.set(Calendar.HOUR_OF_DAY, (minuteOfDay % MINUTES_PER_DAY) / 60);
+		result.set(Calendar.MINUTE, minuteOfDay % 60);
+		return Maybe.definitely(result);
+	}
+
+	private static Maybe<LocalDateTime> minutesLater(LocalDateTime time, int minutes) {
+		if (minutes < 0) {
+			return Maybe.unknown();
+		}
+		return Maybe.definitely(time.truncatedTo(ChronoUnit.MINUTES).plusMinutes(minutes));
+	}
+
+	private static Maybe<ZonedDateTime> atZone(Maybe<LocalDateTime> time, ZoneId zone) {
+		if (!time.isKnown()) {
+			return Maybe.unknown();
+		}
+		return Maybe.definitely(ZonedDateTime.of(time.iterator().next(), zone));
+	}
+
+	/**
+	 * @return The number of separate intervals in the collection.
+	 */
+	/* package */ int intervalCount() {
+		return this.intervals.length;
+	}
+
+	/**
+	 * @return The first minute of week of the index'th interval, in start time order.
+	 */
+	/* package */ int startMinute(int index) {
+		return DayLocalInterval.startOf(this.intervals[index]);
+	}
+
+	/**
+	 * @return The last minute of week of the index'th interval, in start time order.
+	 */
+	/* package */ int endMinute(int index) {
+		return DayLocalInterval.endOf(this.intervals[index]);
+	}
+
+	/**
+	 * Writes the compact binary form of these intervals at the buffer's position, advancing it. See
+	 * EncodedWeekIntervals for the format.
+	 *
+	 * @param buffer Where to write, which needs at least encodedSize() bytes remaining.
+	 * @throws java.nio.BufferOverflowException If there isn't enough room in the buffer.
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		EncodedWeekIntervals.write(this, buffer);
+	}
+
+	/**
+	 * @return The number of bytes writeTo will write.
+	 */
+	public int encodedSize() {
+		return EncodedWeekIntervals.encodedSize(this);
+	}
+
+	/**
+	 * Reads intervals written by writeTo from the buffer's position, advancing it.
+	 *
+	 * @param buffer Where to read from.
+	 * @return The decoded intervals.
+	 * @throws IllegalArgumentException If the data isn't a supported encoding.
+	 */
+	public static WeekIntervals readFrom(ByteBuffer buffer) {
+		return EncodedWeekIntervals.read(buffer);
+	}
+
+	/**
+	 * Converts these intervals to a minute of week bitmap. The bitmap answers contains queries in constant time, at
+	 * the cost of a fixed 1.3KB or so per schedule.
+	 *
+	 * @return A bitmap with the same minutes set as this collection contains.
+	 */
+	public WeekIntervalsBitmap toBitmap() {
+		long[] words = new long[WeekIntervalsBitmap.WORD_COUNT];
+		for (long interval : this.intervals) {
+			int start = DayLocalInterval.startOf(interval);
+			int end = DayLocalInterval.endOf(interval);
+			for (int word = start >>> 6; word <= end >>> 6; word++) {
+				long mask = -1L;
+				if (word == start >>> 6) mask &= -1L << start;
+				if (word == end >>> 6) mask &= -1L >>> (63 - (end & 63));
+				words[word] |= mask;
+			}
+		}
+		return new WeekIntervalsBitmap(words);
 	}
 
 	/**
@@ -54,28 +336,215 @@ public class WeekIntervals {
 	 * @return A new WeekIntervals object with the given range added.
 	 */
 	/* package */ WeekIntervals add(DayLocalInterval newInterval) {
-		Set<DayLocalInterval> newSet = new HashSet<DayLocalInterval>();
-		DayLocalInterval intToAdd = newInterval;
+		int start = newInterval.getStartMinute();
+		int end = newInterval.getEndMinute();
+
+		// Everything in [first, last) intersects the new interval and gets merged into it
+		int first = this.firstEndingAtOrAfter(start);
+		int last = this.firstStartingAfter(end);
+		if (first < last) {
+			long only = this.intervals[first];
+			if (last - first == 1 && DayLocalInterval.startOf(only) <= start && DayLocalInterval.endOf(only) >= end) {
+				return this;
+			}
+			start = Math.min(start, DayLocalInterval.startOf(this.intervals[first]));
+			end = Math.max(end, DayLocalInterval.endOf(this.intervals[last - 1]));
+		}
+
+		long[] newIntervals = new long[this.intervals.length - (last - first) + 1];
+		System.arraycopy(this.intervals, 0, newIntervals, 0, first);
+		newIntervals[first] = DayLocalInterval.pack(start, end);
+		System.arraycopy(this.intervals, last, newIntervals, first + 1, this.intervals.length - last);
+		return new WeekIntervals(newIntervals);
+	}
+
+	/**
+	 * @param other Another collection of intervals.
+	 * @return A new WeekIntervals containing every time contained by either collection.
+	 */
+	public WeekIntervals union(WeekIntervals other) {
+		long[] result = new long[this.intervals.length + other.intervals.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < this.intervals.length || j < other.intervals.length) {
+			// Packed intervals sort by their start minute
+			boolean takeMine = j == other.intervals.length
+				|| (i < this.intervals.length && this.intervals[i] <= other.intervals[j]);
+			long next = takeMine ? this.intervals[i++] : other.intervals[j++];
+			long current = (count == 0) ? 0 : result[count - 1];
+			if (count > 0 && DayLocalInterval.startOf(next) <= DayLocalInterval.endOf(current)) {
+				int end = Math.max(DayLocalInterval.endOf(current), DayLocalInterval.endOf(next));
+				result[count - 1] = DayLocalInterval.pack(DayLocalInterval.startOf(current), end);
+			}
+			else {
+				result[count++] = next;
+			}
+		}
+
+		return new WeekIntervals(Arrays.copyOf(result, count));
+	}
+
+	/**
+	 * @param other Another collection of intervals.
+	 * @return A new WeekIntervals containing the times contained by both collections.
+	 */
+	public WeekIntervals intersect(WeekIntervals other) {
+		long[] result = new long[this.intervals.length + other.intervals.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < this.intervals.length && j < other.intervals.length) {
+			long mine = this.intervals[i];
+			long theirs = other.intervals[j];
+			int start = Math.max(DayLocalInterval.startOf(mine), DayLocalInterval.startOf(theirs));
+			int end = Math.min(DayLocalInterval.endOf(mine), DayLocalInterval.endOf(theirs));
+			if (start <= end) {
+				result[count++] = DayLocalInterval.pack(start, end);
+			}
+
+			if (DayLocalInterval.endOf(mine) < DayLocalInterval.endOf(theirs)) {
+				i++;
+			}
+			else {
+				j++;
+			}
+		}
+
+		return new WeekIntervals(Arrays.copyOf(result, count));
+	}
+
+	/**
+	 * @param other Another collection of intervals.
+	 * @return A new WeekIntervals containing the times contained by this collection but not the other one.
+	 */
+	public WeekIntervals subtract(WeekIntervals other) {
+		// Each of the other intervals can split at most one of these in two
+		long[] result = new long[this.intervals.length + other.intervals.length];
+		int count = 0;
+		int j = 0;
+		for (long mine : this.intervals) {
+			int mineStart = DayLocalInterval.startOf(mine);
+			int mineEnd = DayLocalInterval.endOf(mine);
+			// Skip past the other intervals which finish before this one starts, they can't affect later ones either
+			while (j < other.intervals.length && DayLocalInterval.endOf(other.intervals[j]) < mineStart) {
+				j++;
+			}
 
-		for (DayLocalInterval interval : this.intervals) {
-			if (interval.intersects(intToAdd)) {
-				intToAdd = interval.mergeWith(intToAdd);
+			int start = mineStart;
+			for (int k=j;k<other.intervals.length && DayLocalInterval.startOf(other.intervals[k]) <= mineEnd;k++) {
+				int theirStart = DayLocalInterval.startOf(other.intervals[k]);
+				if (theirStart > start) {
+					result[count++] = DayLocalInterval.pack(start, theirStart - 1);
+				}
+				start = Math.max(start, DayLocalInterval.endOf(other.intervals[k]) + 1);
+			}
+			if (start <= mineEnd) {
+				result[count++] = DayLocalInterval.pack(start, mineEnd);
+			}
+		}
+
+		return new WeekIntervals(Arrays.copyOf(result, count));
+	}
+
+	/**
+	 * @param other Another collection of intervals.
+	 * @return true if some time is contained by both collections, false otherwise.
+	 */
+	public boolean overlaps(WeekIntervals other) {
+		int i = 0;
+		int j = 0;
+		while (i < this.intervals.length && j < other.intervals.length) {
+			long mine = this.intervals[i];
+			long theirs = other.intervals[j];
+			if (DayLocalInterval.intersects(mine, theirs)) {
+				return true;
+			}
+
+			if (DayLocalInterval.endOf(mine) < DayLocalInterval.endOf(theirs)) {
+				i++;
 			}
 			else {
-				newSet.add(interval);
+				j++;
 			}
 		}
+		return false;
+	}
+
+	private int firstEndingAtOrAfter(int minuteOfWeek) {
+		int low = 0;
+		int high = this.intervals.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (DayLocalInterval.endOf(this.intervals[middle]) < minuteOfWeek) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private int firstStartingAfter(int minuteOfWeek) {
+		int low = 0;
+		int high = this.intervals.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (DayLocalInterval.startOf(this.intervals[middle]) <= minuteOfWeek) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param day A Calendar day of the week, e.g. Calendar.MONDAY
+	 * @return Minutes since the start of Sunday, which is Calendar's first day of the week.
+	 */
+	/* package */ static int minuteOfWeek(int day, int hour, int minute) {
+		return (day - 1) * MINUTES_PER_DAY + hour * 60 + minute;
+	}
+
+	/* package */ static int minuteOfWeek(Calendar time) {
+		return minuteOfWeek(time.get(Calendar.DAY_OF_WEEK), time.get(Calendar.HOUR_OF_DAY), time.get(Calendar.MINUTE));
+	}
+
+	/* package */ static int minuteOfWeek(LocalDateTime time) {
+		// DayOfWeek runs from Monday = 1 to Sunday = 7, Calendar from Sunday = 1 to Saturday = 7
+		int day = time.getDayOfWeek().getValue() % 7 + 1;
+		return minuteOfWeek(day, time.getHour(), time.getMinute());
+	}
 
-		newSet.add(intToAdd);
-		return new WeekIntervals(newSet);
+	/**
+	 * Returns a canonical instance equal to this one, like String.intern. Interning schedules which are held for a
+	 * long time means identical schedules share one copy, and equal interned instances are always identical. Interned
+	 * instances which are no longer used elsewhere can still be garbage collected.
+	 *
+	 * @return An instance equal to this one, the same one for every equal WeekIntervals.
+	 */
+	public WeekIntervals intern() {
+		synchronized (internPool) {
+			WeakReference<WeekIntervals> canonicalRef = internPool.get(this);
+			WeekIntervals canonical = (canonicalRef == null) ? null : canonicalRef.get();
+			if (canonical == null) {
+				canonical = this;
+				internPool.put(this, new WeakReference<WeekIntervals>(this));
+			}
+			return canonical;
+		}
 	}
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result
-				+ ((intervals == null) ? 0 : intervals.hashCode());
+		int result = this.hash;
+		if (result == 0) {
+			result = Arrays.hashCode(this.intervals);
+			this.hash = result;
+		}
 		return result;
 	}
 
@@ -88,72 +557,182 @@ public class WeekIntervals {
 		if (getClass() != obj.getClass())
 			return false;
 		WeekIntervals other = (WeekIntervals) obj;
-		if (intervals == null) {
-			if (other.intervals != null)
-				return false;
-		} else if (!intervals.equals(other.intervals))
+		if (this.hashCode() != other.hashCode())
 			return false;
-		return true;
+		return Arrays.equals(this.intervals, other.intervals);
 	}
 
 	@Override
 	public String toString() {
-		return "WeekIntervals " + intervals;
+		StringBuilder result = new StringBuilder("WeekIntervals [");
+		for (int i=0;i<this.intervals.length;i++) {
+			if (i > 0) result.append(", ");
+			result.append(new DayLocalInterval(this.intervals[i]));
+		}
+		return result.append(']').toString();
 	}
 
 	/**
-	 * Immutable interval on a given day of the week.
+	 * Collects intervals and builds a WeekIntervals from them in one go, rather than making a new collection for each
+	 * interval like add does. Gives the same result as adding each interval in turn.
 	 */
-	/* package */ static class DayLocalInterval {
-		private final DayLocalTime startTime;
-		private final DayLocalTime endTime;
+	/* package */ static class Builder {
+		private static final int INITIAL_CAPACITY = 8;
+		private static final int MAX_RETAINED_CAPACITY = 1024;
 
-		public DayLocalInterval(DayLocalTime startTime, DayLocalTime endTime) {
-			assert(startTime.day.equals(endTime.day));
-			assert(startTime.time.compareTo(endTime.time) <= 0);
-			this.startTime = startTime;
-			this.endTime = endTime;
+		private long[] intervals = new long[INITIAL_CAPACITY];
+		private int count;
+
+		public Builder add(DayLocalInterval interval) {
+			return this.add(interval.packed);
 		}
 
-		public boolean contains(DayLocalTime other) {
-			if (other.day != this.startTime.day) return false;
-			final boolean moreThanOrEqualsStart = this.startTime.time.compareTo(other.time) <= 0;
-			final boolean lessThanOrEqualsEnd = this.endTime.time.compareTo(other.time) >= 0;
+		/**
+		 * @param startMinute The first minute of week of the interval.
+		 * @param endMinute The last minute of week of the interval, on the same day as startMinute.
+		 */
+		public Builder add(int startMinute, int endMinute) {
+			return this.add(DayLocalInterval.checkedPack(startMinute, endMinute));
+		}
 
-			return moreThanOrEqualsStart && lessThanOrEqualsEnd;
+		private Builder add(long interval) {
+			if (this.count == this.intervals.length) {
+				this.intervals = Arrays.copyOf(this.intervals, this.count * 2);
+			}
+			this.intervals[this.count++] = interval;
+			return this;
 		}
 
-		private boolean intersects(DayLocalInterval other) {
-			boolean otherHasMe = other.contains(this.startTime) || other.contains(this.endTime);
-			boolean iHaveOther = this.contains(other.startTime) || this.contains(other.endTime);
-			return iHaveOther || otherHasMe;
+		public WeekIntervals build() {
+			int merged = this.merge();
+			if (merged == 0) {
+				return new WeekIntervals();
+			}
+			return new WeekIntervals(Arrays.copyOf(this.intervals, merged));
 		}
 
-		private DayLocalInterval mergeWith(DayLocalInterval other) {
-			assert(this.intersects(other));
-			DayLocalTime startTime = this.chooseTime("minimum", this.startTime, other.startTime);
-			DayLocalTime endTime = this.chooseTime("maximum", this.endTime, other.endTime);
-			return new DayLocalInterval(startTime, endTime);
+		/**
+		 * Gives the sink the intervals build would put in a WeekIntervals, without making one.
+		 */
+		/* package */ void sendTo(IntervalSink sink) {
+			int merged = this.merge();
+			for (int i=0;i<merged;i++) {
+				sink.accept(DayLocalInterval.startOf(this.intervals[i]), DayLocalInterval.endOf(this.intervals[i]));
+			}
 		}
 
-		private DayLocalTime chooseTime(String extreme, DayLocalTime time1, DayLocalTime time2) {
-			if (time1.time.compareTo(time2.time) > 0) {
-				return extreme.equals("minimum") ? time2 : time1;
+		/**
+		 * Empties the builder so it can be reused.
+		 */
+		/* package */ void clear() {
+			this.count = 0;
+			// Let the space from an unusually long description go
+			if (this.intervals.length > MAX_RETAINED_CAPACITY) {
+				this.intervals = new long[INITIAL_CAPACITY];
 			}
-			else {
-				return extreme.equals("minimum") ? time1 : time2;
+		}
+
+		/**
+		 * Sorts and merges the intervals in place, which doesn't change the times they cover.
+		 *
+		 * @return How many intervals are left.
+		 */
+		private int merge() {
+			if (this.count == 0) {
+				return 0;
+			}
+
+			// Packed intervals sort by their start minute
+			long[] merged = this.intervals;
+			Arrays.sort(merged, 0, this.count);
+			int last = 0;
+			for (int i=1;i<this.count;i++) {
+				long current = merged[last];
+				if (DayLocalInterval.startOf(merged[i]) <= DayLocalInterval.endOf(current)) {
+					int end = Math.max(DayLocalInterval.endOf(current), DayLocalInterval.endOf(merged[i]));
+					merged[last] = DayLocalInterval.pack(DayLocalInterval.startOf(current), end);
+				}
+				else {
+					merged[++last] = merged[i];
+				}
+			}
+			this.count = last + 1;
+			return this.count;
+		}
+	}
+
+	/**
+	 * Immutable interval on a given day of the week. WeekIntervals keeps its intervals as bare packed longs, see pack,
+	 * and only makes these when asked.
+	 */
+	/* package */ static class DayLocalInterval {
+		private final long packed;
+
+		public DayLocalInterval(DayLocalTime startTime, DayLocalTime endTime) {
+			this(checkedPack(startTime.getMinuteOfWeek(), endTime.getMinuteOfWeek()));
+		}
+
+		private DayLocalInterval(long packed) {
+			this.packed = packed;
+		}
+
+		/**
+		 * @param startMinute The first minute of week of the interval.
+		 * @param endMinute The last minute of week of the interval, on the same day as startMinute.
+		 */
+		public static DayLocalInterval fromMinutesOfWeek(int startMinute, int endMinute) {
+			return new DayLocalInterval(checkedPack(startMinute, endMinute));
+		}
+
+		/**
+		 * Packs an interval after checking it lies within the week and within a single day, which everything reading
+		 * packed intervals relies on.
+		 * @throws IllegalArgumentException If it doesn't.
+		 */
+		/* package */ static long checkedPack(int startMinute, int endMinute) {
+			if (startMinute < 0 || endMinute >= MINUTES_PER_WEEK || startMinute > endMinute
+					|| startMinute / MINUTES_PER_DAY != endMinute / MINUTES_PER_DAY) {
+				throw new IllegalArgumentException("Not an interval within one day: " + startMinute + "-" + endMinute);
 			}
+			return pack(startMinute, endMinute);
+		}
+
+		/**
+		 * Packs an interval into one long, with the start minute in the high half and the end minute in the low
+		 * half. Minutes are never negative, so packed intervals sort by start minute, then end minute.
+		 */
+		/* package */ static long pack(int startMinute, int endMinute) {
+			return ((long) startMinute << 32) | endMinute;
+		}
+
+		/* package */ static int startOf(long interval) {
+			return (int) (interval >>> 32);
+		}
+
+		/* package */ static int endOf(long interval) {
+			return (int) interval;
+		}
+
+		/* package */ static boolean intersects(long interval1, long interval2) {
+			return Math.max(startOf(interval1), startOf(interval2)) <= Math.min(endOf(interval1), endOf(interval2));
+		}
+
+		public int getStartMinute() {
+			return startOf(this.packed);
+		}
+
+		public int getEndMinute() {
+			return endOf(this.packed);
+		}
+
+		public boolean contains(DayLocalTime other) {
+			int minute = other.getMinuteOfWeek();
+			return this.getStartMinute() <= minute && minute <= this.getEndMinute();
 		}
 
 		@Override
 		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result
-					+ ((endTime == null) ? 0 : endTime.hashCode());
-			result = prime * result
-					+ ((startTime == null) ? 0 : startTime.hashCode());
-			return result;
+			return (int) (this.packed ^ (this.packed >>> 32));
 		}
 
 		@Override
@@ -165,23 +744,13 @@ public class WeekIntervals {
 			if (getClass() != obj.getClass())
 				return false;
 			DayLocalInterval other = (DayLocalInterval) obj;
-			if (endTime == null) {
-				if (other.endTime != null)
-					return false;
-			} else if (!endTime.equals(other.endTime))
-				return false;
-			if (startTime == null) {
-				if (other.startTime != null)
-					return false;
-			} else if (!startTime.equals(other.startTime))
-				return false;
-			return true;
+			return this.packed == other.packed;
 		}
 
 		@Override
 		public String toString() {
-			return "DayLocalInterval [startTime=" + startTime + ", endTime="
-					+ endTime + "]";
+			return "DayLocalInterval [startTime=" + DayLocalTime.fromMinuteOfWeek(this.getStartMinute()) + ", endTime="
+					+ DayLocalTime.fromMinuteOfWeek(this.getEndMinute()) + "]";
 		}
 	}
 
@@ -189,21 +758,37 @@ public class WeekIntervals {
 	 * Immutable time on a day of the week.
 	 */
 	/* package */ static class DayLocalTime {
-		private final Integer day;
-		private final LocalTime time;
-		public DayLocalTime(Integer day, LocalTime time) {
+		private final int minuteOfWeek;
+
+		public DayLocalTime(int day, LocalTime time) {
+			this(minuteOfWeek(day, time.getHours(), time.getMinutes()));
 			assert(day > 0 && day < 8);
-			this.day = day;
-			this.time = time;
 		}
+
+		private DayLocalTime(int minuteOfWeek) {
+			this.minuteOfWeek = minuteOfWeek;
+		}
+
+		/**
+		 * @param minuteOfWeek Minutes since the start of Sunday, which is Calendar's first day of the week.
+		 */
+		public static DayLocalTime fromMinuteOfWeek(int minuteOfWeek) {
+			assert(minuteOfWeek >= 0 && minuteOfWeek < MINUTES_PER_WEEK);
+			return new DayLocalTime(minuteOfWeek);
+		}
+
+		/**
+		 * @return Minutes since the start of Sunday, which is Calendar's first day of the week.
+		 */
+		public int getMinuteOfWeek() {
+			return this.minuteOfWeek;
+		}
+
 		@Override
 		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + ((day == null) ? 0 : day.hashCode());
-			result = prime * result + ((time == null) ? 0 : time.hashCode());
-			return result;
+			return this.minuteOfWeek;
 		}
+
 		@Override
 		public boolean equals(Object obj) {
 			if (this == obj)
@@ -213,22 +798,14 @@ public class WeekIntervals {
 			if (getClass() != obj.getClass())
 				return false;
 			DayLocalTime other = (DayLocalTime) obj;
-			if (day == null) {
-				if (other.day != null)
-					return false;
-			} else if (!day.equals(other.day))
-				return false;
-			if (time == null) {
-				if (other.time != null)
-					return false;
-			} else if (!time.equals(other.time))
-				return false;
-			return true;
+			return this.minuteOfWeek == other.minuteOfWeek;
 		}
 
 		@Override
 		public String toString() {
-			return "DayLocalTime [day=" + day + ", time=" + time + "]";
+			int minuteOfDay = this.minuteOfWeek % MINUTES_PER_DAY;
+			return "DayLocalTime [day=" + (this.minuteOfWeek / MINUTES_PER_DAY + 1) + ", time="
+					+ new LocalTime(minuteOfDay / 60, minuteOfDay % 60) + "]";
 		}
 	}
 }
@@ -0,0 +1,84 @@
+package timesparser;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+
+/**
+ * An immutable bitmap form of WeekIntervals, with one bit for every minute of the week. Checking a time is a single
+ * array lookup, so prefer this over WeekIntervals when you're doing lots of checks against the same schedule.
+ * Get one from WeekIntervals.toBitmap().
+ *
+ * Like WeekIntervals, this doesn't know about timezones.
+ */
+public class WeekIntervalsBitmap {
+	/* package */ static final int WORD_COUNT = (WeekIntervals.MINUTES_PER_WEEK + 63) / 64;
+
+	private final long[] words;
+
+	/* package */ WeekIntervalsBitmap(long[] words) {
+		assert(words.length == WORD_COUNT);
+		this.words = words;
+	}
+
+	/* package */ boolean contains(int minuteOfWeek) {
+		return (this.words[minuteOfWeek >>> 6] & (1L << minuteOfWeek)) != 0;
+	}
+
+	/**
+	 * Checks whether the bitmap contains the given time.
+	 *
+	 * Note that WeekIntervalsBitmap doesn't know about timezones.
+	 *
+	 * @param time The time to check for
+	 * @return true if the given time is contained, false otherwise.
+	 */
+	public boolean contains(Calendar time) {
+		int day = time.get(Calendar.DAY_OF_WEEK);
+		int hour = time.get(Calendar.HOUR_OF_DAY);
+		int minute = time.get(Calendar.MINUTE);
+
+		return this.contains(WeekIntervals.minuteOfWeek(day, hour, minute));
+	}
+
+	/**
+	 * Converts the bitmap back to intervals. Each run of set minutes becomes one interval per day it covers, so
+	 * intervals which were adjacent but not overlapping in the original collection come back merged.
+	 *
+	 * @return A WeekIntervals containing the same minutes as this bitmap.
+	 */
+	public WeekIntervals toIntervals() {
+		BitSet bits = BitSet.valueOf(this.words);
+		WeekIntervals.Builder intervals = new WeekIntervals.Builder();
+		int start = bits.nextSetBit(0);
+		while (start >= 0) {
+			int dayEnd = (start / WeekIntervals.MINUTES_PER_DAY + 1) * WeekIntervals.MINUTES_PER_DAY;
+			int end = Math.min(bits.nextClearBit(start), dayEnd);
+			intervals.add(start, end - 1);
+			start = bits.nextSetBit(end);
+		}
+		return intervals.build();
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(this.words);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		WeekIntervalsBitmap other = (WeekIntervalsBitmap) obj;
+		return Arrays.equals(this.words, other.words);
+	}
+
+	@Override
+	public String toString() {
+		return "WeekIntervalsBitmap " + this.toIntervals();
+	}
+}
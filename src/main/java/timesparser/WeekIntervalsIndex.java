@@ -0,0 +1,179 @@
+package timesparser;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable index over many venues' schedules, answering "which venues are open at this time". Queries take time
+ * proportional to the number of open venues returned, rather than to the number of venues in the index.
+ *
+ * The week is cut into segments at every time any venue opens or closes, and each segment keeps the list of venues
+ * open throughout it. A query finds its segment with a binary search and returns that list. Schedules mostly open
+ * and close on the hour or half hour, so there are rarely more than a few hundred segments, but the index does hold
+ * an entry per venue for every segment the venue is open in.
+ *
+ * Like WeekIntervals, this doesn't know about timezones.
+ *
+ * @param <K> The type of the venue ids.
+ */
+public class WeekIntervalsIndex<K> {
+	private final Object[] ids;
+	/**
+	 * The first minute of week of each segment, starting with 0.
+	 */
+	private final int[] segmentStarts;
+	/**
+	 * Ordinals in ids of the venues open in each segment, in the order they were added.
+	 */
+	private final int[][] openVenues;
+
+	private WeekIntervalsIndex(Object[] ids, int[] segmentStarts, int[][] openVenues) {
+		this.ids = ids;
+		this.segmentStarts = segmentStarts;
+		this.openVenues = openVenues;
+	}
+
+	/**
+	 * Collects venues for a WeekIntervalsIndex.
+	 */
+	public static class Builder<K> {
+		private final List<K> ids = new ArrayList<K>();
+		private final List<WeekIntervals> schedules = new ArrayList<WeekIntervals>();
+
+		/**
+		 * @param id The id to return from queries when the venue is open. Adding the same id twice means it
+		 *           may be returned twice.
+		 * @param schedule The venue's opening times.
+		 */
+		public Builder<K> add(K id, WeekIntervals schedule) {
+			this.ids.add(id);
+			this.schedules.add(schedule);
+			return this;
+		}
+
+		public WeekIntervalsIndex<K> build() {
+			int[] segmentStarts = this.segmentStarts();
+
+			// Count first so each segment's array can be allocated at its final size
+			int[] counts = new int[segmentStarts.length];
+			for (WeekIntervals schedule : this.schedules) {
+				for (int i=0;i<schedule.intervalCount();i++) {
+					int first = segmentIndex(segmentStarts, schedule.startMinute(i));
+					int last = segmentIndex(segmentStarts, schedule.endMinute(i));
+					for (int segment=first;segment<=last;segment++) {
+						counts[segment]++;
+					}
+				}
+			}
+
+			int[][] openVenues = new int[segmentStarts.length][];
+			for (int segment=0;segment<segmentStarts.length;segment++) {
+				openVenues[segment] = new int[counts[segment]];
+			}
+			Arrays.fill(counts, 0);
+			for (int venue=0;venue<this.schedules.size();venue++) {
+				WeekIntervals schedule = this.schedules.get(venue);
+				for (int i=0;i<schedule.intervalCount();i++) {
+					int first = segmentIndex(segmentStarts, schedule.startMinute(i));
+					int last = segmentIndex(segmentStarts, schedule.endMinute(i));
+					for (int segment=first;segment<=last;segment++) {
+						openVenues[segment][counts[segment]++] = venue;
+					}
+				}
+			}
+
+			return new WeekIntervalsIndex<K>(this.ids.toArray(), segmentStarts, openVenues);
+		}
+
+		/**
+		 * @return Every minute of week where some venue opens or closes, sorted and without duplicates.
+		 */
+		private int[] segmentStarts() {
+			int size = 1;
+			for (WeekIntervals schedule : this.schedules) {
+				size += schedule.intervalCount() * 2;
+			}
+
+			int[] boundaries = new int[size];
+			int count = 0;
+			boundaries[count++] = 0;
+			for (WeekIntervals schedule : this.schedules) {
+				for (int i=0;i<schedule.intervalCount();i++) {
+					boundaries[count++] = schedule.startMinute(i);
+					// Intervals include their end minute, so the venue closes on the minute after
+					boundaries[count++] = schedule.endMinute(i) + 1;
+				}
+			}
+			Arrays.sort(boundaries);
+
+			int unique = 0;
+			for (int i=0;i<boundaries.length;i++) {
+				boolean inWeek = boundaries[i] < WeekIntervals.MINUTES_PER_WEEK;
+				if (inWeek && (unique == 0 || boundaries[unique - 1] != boundaries[i])) {
+					boundaries[unique++] = boundaries[i];
+				}
+			}
+			return Arrays.copyOf(boundaries, unique);
+		}
+	}
+
+	/**
+	 * @return The venue ids open at the given time, in the order they were added. The list is a read only view.
+	 */
+	public List<K> openAt(Calendar time) {
+		int day = time.get(Calendar.DAY_OF_WEEK);
+		int hour = time.get(Calendar.HOUR_OF_DAY);
+		int minute = time.get(Calendar.MINUTE);
+
+		return this.openAt(WeekIntervals.minuteOfWeek(day, hour, minute));
+	}
+
+	/**
+	 * @param dayOfWeek A Calendar day of the week, e.g. Calendar.MONDAY
+	 * @param hour Hour of the day, 0-23.
+	 * @param minute Minute of the hour, 0-59.
+	 * @return The venue ids open at the given time, in the order they were added. The list is a read only view.
+	 */
+	public List<K> openAt(int dayOfWeek, int hour, int minute) {
+		return this.openAt(WeekIntervals.minuteOfWeek(dayOfWeek, hour, minute));
+	}
+
+	/* package */ List<K> openAt(int minuteOfWeek) {
+		final int[] venues = this.openVenues[segmentIndex(this.segmentStarts, minuteOfWeek)];
+		if (venues.length == 0) {
+			return Collections.emptyList();
+		}
+
+		return new AbstractList<K>() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public K get(int index) {
+				return (K) ids[venues[index]];
+			}
+
+			@Override
+			public int size() {
+				return venues.length;
+			}
+		};
+	}
+
+	/**
+	 * @return The number of venues in the index.
+	 */
+	public int size() {
+		return this.ids.length;
+	}
+
+	/**
+	 * @return The index of the segment containing minuteOfWeek.
+	 */
+	private static int segmentIndex(int[] segmentStarts, int minuteOfWeek) {
+		int index = Arrays.binarySearch(segmentStarts, minuteOfWeek);
+		return (index >= 0) ? index : -index - 2;
+	}
+}
@@ -0,0 +1,83 @@
+package timesparser;
+
+import java.util.Arrays;
+
+/**
+ * The times a WeekIntervals opens and closes, treating the week as a loop. Intervals which run into each other, like
+ * the two halves of an overnight interval split at midnight, count as one opening.
+ */
+/* package */ class WeekTransitions {
+	/**
+	 * Sorted minutes of week where an open period starts.
+	 */
+	private final int[] openings;
+	/**
+	 * Sorted minutes of week which are the last minute of an open period.
+	 */
+	private final int[] closings;
+
+	private WeekTransitions(int[] openings, int[] closings) {
+		this.openings = openings;
+		this.closings = closings;
+	}
+
+	public static WeekTransitions of(WeekIntervals intervals) {
+		int count = intervals.intervalCount();
+		int[] runStarts = new int[count];
+		int[] runEnds = new int[count];
+		int runs = 0;
+		for (int i=0;i<count;i++) {
+			if (runs > 0 && intervals.startMinute(i) == runEnds[runs - 1] + 1) {
+				runEnds[runs - 1] = intervals.endMinute(i);
+			}
+			else {
+				runStarts[runs] = intervals.startMinute(i);
+				runEnds[runs] = intervals.endMinute(i);
+				runs++;
+			}
+		}
+
+		// A period running through the end of the week carries on into the one at the start of the week
+		int first = 0;
+		int last = runs;
+		if (runs > 0 && runStarts[0] == 0 && runEnds[runs - 1] == WeekIntervals.MINUTES_PER_WEEK - 1) {
+			first = 1;
+			last = runs - 1;
+			if (runs == 1) {
+				return new WeekTransitions(new int[0], new int[0]);
+			}
+		}
+
+		int[] openings = Arrays.copyOfRange(runStarts, first, runs);
+		int[] closings = Arrays.copyOfRange(runEnds, 0, last);
+		return new WeekTransitions(openings, closings);
+	}
+
+	/**
+	 * @return How many minutes after minuteOfWeek the next period opens, between 1 and a week, or -1 if it never does.
+	 */
+	public int minutesUntilOpening(int minuteOfWeek) {
+		return minutesUntilNext(this.openings, minuteOfWeek);
+	}
+
+	/**
+	 * @return How many minutes after minuteOfWeek the last minute of the next period to close is, between 1 and a week,
+	 *         or -1 if it never closes.
+	 */
+	public int minutesUntilClosing(int minuteOfWeek) {
+		return minutesUntilNext(this.closings, minuteOfWeek);
+	}
+
+	private static int minutesUntilNext(int[] transitions, int minuteOfWeek) {
+		if (transitions.length == 0) {
+			return -1;
+		}
+
+		int index = Arrays.binarySearch(transitions, minuteOfWeek + 1);
+		index = (index >= 0) ? index : -index - 1;
+		if (index == transitions.length) {
+			return transitions[0] + WeekIntervals.MINUTES_PER_WEEK - minuteOfWeek;
+		}
+		return transitions[index] - minuteOfWeek;
+	}
+}
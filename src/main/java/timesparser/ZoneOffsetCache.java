@@ -0,0 +1,98 @@
+package timesparser;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Turns epoch millis into a local minute of week for a zone. The UTC offset in effect is cached along with the span
+ * of time it's valid for, between the zone's surrounding transitions, so converting a time in that span is plain
+ * arithmetic and allocates nothing.
+ */
+/* package */ final class ZoneOffsetCache {
+	private static final ConcurrentMap<ZoneId, ZoneOffsetCache> caches = new ConcurrentHashMap<ZoneId, ZoneOffsetCache>();
+	/**
+	 * 1970-01-01 was a Thursday, which is Calendar day 5.
+	 */
+	private static final int EPOCH_DAY_OF_WEEK_INDEX = 4;
+
+	private final ZoneRules rules;
+	private volatile Span span;
+
+	private ZoneOffsetCache(ZoneId zone) {
+		this.rules = zone.getRules();
+	}
+
+	/**
+	 * A span of time with a single UTC offset.
+	 */
+	private static final class Span {
+		private final long fromEpochSecond;
+		private final long untilEpochSecond;
+		private final int offsetSeconds;
+
+		public Span(long fromEpochSecond, long untilEpochSecond, int offsetSeconds) {
+			this.fromEpochSecond = fromEpochSecond;
+			this.untilEpochSecond = untilEpochSecond;
+			this.offsetSeconds = offsetSeconds;
+		}
+	}
+
+	/**
+	 * @return The minutes since the start of Sunday, local to the zone, at the given instant.
+	 */
+	public static int minuteOfWeek(long epochMillis, ZoneId zone) {
+		ZoneOffsetCache cache = caches.get(zone);
+		if (cache == null) {
+			ZoneOffsetCache newCache = new ZoneOffsetCache(zone);
+			cache = caches.putIfAbsent(zone, newCache);
+			cache = (cache == null) ? newCache : cache;
+		}
+		return cache.minuteOfWeek(epochMillis);
+	}
+
+	private int minuteOfWeek(long epochMillis) {
+		long epochSecond = Math.floorDiv(epochMillis, 1000L);
+		long localMinutes = Math.floorDiv(epochSecond + this.offsetSeconds(epochSecond), 60L);
+		long epochDay = Math.floorDiv(localMinutes, (long) WeekIntervals.MINUTES_PER_DAY);
+		int minuteOfDay = (int) (localMinutes - epochDay * WeekIntervals.MINUTES_PER_DAY);
+		int dayIndex = (int) Math.floorMod(epochDay + EPOCH_DAY_OF_WEEK_INDEX, 7L);
+		return dayIndex * WeekIntervals.MINUTES_PER_DAY + minuteOfDay;
+	}
+
+	private int offsetSeconds(long epochSecond) {
+		Span current = this.span;
+		if (current != null && epochSecond >= current.fromEpochSecond && epochSecond < current.untilEpochSecond) {
+			return current.offsetSeconds;
+		}
+
+		Span updated = this.spanAt(epochSecond);
+		this.span = updated;
+		return updated.offsetSeconds;
+	}
+
+	private Span spanAt(long epochSecond) {
+		Instant instant = Instant.ofEpochSecond(epochSecond);
+		ZoneOffset offset = this.rules.getOffset(instant);
+		if (this.rules.isFixedOffset()) {
+			return new Span(Long.MIN_VALUE, Long.MAX_VALUE, offset.getTotalSeconds());
+		}
+
+		ZoneOffsetTransition next = this.rules.nextTransition(instant);
+		ZoneOffsetTransition previous = this.rules.previousTransition(instant);
+		long until = (next == null) ? Long.MAX_VALUE : next.toEpochSecond();
+		long from = epochSecond;
+		// An instant right on a transition gets the one before it as its previous transition
+		if (previous == null) {
+			from = Long.MIN_VALUE;
+		}
+		else if (previous.getOffsetAfter().equals(offset)) {
+			from = previous.toEpochSecond();
+		}
+		return new Span(from, until, offset.getTotalSeconds());
+	}
+}
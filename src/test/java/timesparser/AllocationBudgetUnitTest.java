@@ -0,0 +1,180 @@
+package timesparser;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Calendar;
+
+import junit.framework.TestCase;
+
+/**
+ * Guards against garbage creeping back into the hot paths. Allocation is measured per thread with the HotSpot
+ * ThreadMXBean extension, so these tests pass trivially on JVMs which don't support it.
+ */
+public class AllocationBudgetUnitTest extends TestCase {
+	private static final int WARMUP = 20000;
+	private static final int ITERATIONS = 1000;
+	private static final int ROUNDS = 3;
+
+	private static final String SHORT = "Mon-Fri 9-5pm";
+	private static final String LONG = "Mon-Thu lunch 11:30am-2:30pm, dinner 5-10pm, Fri-Sat 11am-11pm, Sun 10am-9pm";
+	private static final String MALFORMED = "call for hours, see website";
+
+	private com.sun.management.ThreadMXBean threads;
+	private long overhead;
+	private int sink;
+
+	private interface Operation {
+		void run();
+	}
+
+	@Override
+	protected void setUp() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) return;
+		com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+		if (!hotspot.isThreadAllocatedMemorySupported()) return;
+		hotspot.setThreadAllocatedMemoryEnabled(true);
+		this.threads = hotspot;
+
+		// Reading the counter can allocate itself, so measure that once and take it off every result
+		this.overhead = 0;
+		this.overhead = this.allocatedBytes(new Operation() {
+			public void run() {}
+		});
+	}
+
+	public void testContainsMinuteOfWeek() {
+		final WeekIntervals schedule = this.schedule();
+		this.assertAllocationFree(new Operation() {
+			private int minute;
+
+			public void run() {
+				this.minute = (this.minute + 37) % WeekIntervals.MINUTES_PER_WEEK;
+				if (schedule.contains(this.minute)) sink++;
+			}
+		});
+	}
+
+	public void testContainsCalendar() {
+		final WeekIntervals schedule = this.schedule();
+		final Calendar time = Calendar.getInstance();
+		time.set(2024, Calendar.MAY, 15, 12, 30);
+		time.getTimeInMillis();
+		this.assertAllocationFree(new Operation() {
+			public void run() {
+				if (schedule.contains(time)) sink++;
+			}
+		});
+	}
+
+	public void testContainsJavaTime() {
+		final WeekIntervals schedule = this.schedule();
+		final LocalDateTime local = LocalDateTime.of(2024, 5, 15, 12, 30);
+		final ZonedDateTime zoned = local.atZone(ZoneId.of("Europe/London"));
+		this.assertAllocationFree(new Operation() {
+			public void run() {
+				if (schedule.contains(local)) sink++;
+				if (schedule.contains(zoned)) sink++;
+			}
+		});
+	}
+
+	public void testContainsEpochMillis() {
+		final WeekIntervals schedule = this.schedule();
+		final ZoneId zone = ZoneId.of("Australia/Sydney");
+		this.assertAllocationFree(new Operation() {
+			private long millis = 1715774400000L;
+
+			public void run() {
+				this.millis += 60000;
+				if (schedule.contains(this.millis, zone)) sink++;
+			}
+		});
+	}
+
+	public void testBitmapContains() {
+		final WeekIntervalsBitmap bitmap = this.schedule().toBitmap();
+		this.assertAllocationFree(new Operation() {
+			private int minute;
+
+			public void run() {
+				this.minute = (this.minute + 37) % WeekIntervals.MINUTES_PER_WEEK;
+				if (bitmap.contains(this.minute)) sink++;
+			}
+		});
+	}
+
+	public void testParseTimesBudgets() {
+		// Only the result is allocated
+		this.assertParseBudget(SHORT, 256);
+		this.assertParseBudget(LONG, 512);
+		this.assertParseBudget(MALFORMED, 0);
+	}
+
+	public void testParseTimesIntoSink() {
+		final IntervalSink counter = new IntervalSink() {
+			public void accept(int startMinuteOfWeek, int endMinuteOfWeek) {
+				sink++;
+			}
+		};
+		final String[] descriptions = {SHORT, LONG, MALFORMED};
+		this.assertAllocationFree(new Operation() {
+			private int next;
+
+			public void run() {
+				String description = descriptions[this.next++ % descriptions.length];
+				TimeExtractor.parseTimes(description, 0, description.length(), counter);
+			}
+		});
+	}
+
+	private WeekIntervals schedule() {
+		WeekIntervals schedule = TimeExtractor.parseTimes(LONG).otherwise((WeekIntervals) null);
+		assertNotNull(schedule);
+		return schedule;
+	}
+
+	private void assertParseBudget(final String description, long bytesPerCall) {
+		long allocated = this.allocatedBytes(new Operation() {
+			public void run() {
+				if (TimeExtractor.parseTimes(description).isKnown()) sink++;
+			}
+		});
+		if (allocated < 0) return;
+		assertTrue(description + " allocated " + allocated / ITERATIONS + " bytes per call, budget is " + bytesPerCall,
+				allocated <= bytesPerCall * ITERATIONS);
+	}
+
+	private void assertAllocationFree(Operation operation) {
+		long allocated = this.allocatedBytes(operation);
+		if (allocated < 0) return;
+		// Anything allocated per call would be at least one object header per iteration
+		assertTrue("Allocated " + allocated + " bytes over " + ITERATIONS + " calls", allocated < ITERATIONS);
+	}
+
+	/**
+	 * @return The fewest bytes allocated over ITERATIONS runs of the operation in any round, after warming it up,
+	 *         or -1 if allocation can't be measured here.
+	 */
+	private long allocatedBytes(Operation operation) {
+		if (this.threads == null) return -1;
+		long thread = Thread.currentThread().getId();
+		for (int i=0;i<WARMUP;i++) {
+			operation.run();
+		}
+
+		long fewest = Long.MAX_VALUE;
+		for (int round=0;round<ROUNDS;round++) {
+			long before = this.threads.getThreadAllocatedBytes(thread);
+			for (int i=0;i<ITERATIONS;i++) {
+				operation.run();
+			}
+			long after = this.threads.getThreadAllocatedBytes(thread);
+			fewest = Math.min(fewest, after - before - this.overhead);
+		}
+		return Math.max(0, fewest);
+	}
+}
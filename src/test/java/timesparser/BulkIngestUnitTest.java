@@ -0,0 +1,75 @@
+package timesparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import junit.framework.TestCase;
+
+public class BulkIngestUnitTest extends TestCase {
+	public void testIngestParsesEveryLine() throws IOException {
+		StringBuilder contents = new StringBuilder();
+		for (int i=0;i<5000;i++) {
+			String hours = (i % 10 == 0) ? "call for hours" : "Mon-Fri " + (i % 5 + 7) + "-" + (i % 6 + 1) + "pm";
+			contents.append("venue-").append(i).append('\t').append(hours).append((i % 2 == 0) ? "\r\n" : "\n");
+		}
+		contents.append("no tab here\n\n");
+		contents.append("café\tSat 10am-2pm");
+
+		File file = File.createTempFile("hours", ".tsv");
+		try {
+			Files.write(file.toPath(), contents.toString().getBytes(StandardCharsets.UTF_8));
+
+			final Map<String, Maybe<WeekIntervals>> results = new ConcurrentHashMap<String, Maybe<WeekIntervals>>();
+			BulkIngest.Stats stats = BulkIngest.ingest(file.toPath(), new BulkIngest.ResultSink() {
+				public void accept(String venueId, Maybe<WeekIntervals> result) {
+					assertNull(venueId, results.put(venueId, result));
+				}
+			}, 4, 4096);
+
+			assertEquals(5001, stats.getLines());
+			assertEquals(4501, stats.getParsed());
+			assertEquals(500, stats.getFailed());
+			assertEquals(1, stats.getMalformed());
+			assertEquals(file.length(), stats.getBytes());
+			assertEquals(5001, results.size());
+			assertEquals(TimeExtractor.parseTimes("Mon-Fri 8-2pm"), results.get("venue-1"));
+			assertFalse(results.get("venue-10").isKnown());
+			assertEquals(TimeExtractor.parseTimes("Sat 10am-2pm"), results.get("café"));
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	public void testNonAsciiHoursParseLikeDecodedText() throws IOException {
+		String[] hours = {"Mon 9\u00b730-5pm", "Mon 9\u203930-5pm", "Fr\u0130day 9-5pm", "Tue 8am\u20135pm", "Mon 9:30-5pm \u2615"};
+		StringBuilder contents = new StringBuilder();
+		for (int i=0;i<hours.length;i++) {
+			contents.append("venue-").append(i).append('\t').append(hours[i]).append('\n');
+		}
+
+		File file = File.createTempFile("hours", ".tsv");
+		try {
+			Files.write(file.toPath(), contents.toString().getBytes(StandardCharsets.UTF_8));
+
+			final Map<String, Maybe<WeekIntervals>> results = new ConcurrentHashMap<String, Maybe<WeekIntervals>>();
+			BulkIngest.ingest(file.toPath(), new BulkIngest.ResultSink() {
+				public void accept(String venueId, Maybe<WeekIntervals> result) {
+					results.put(venueId, result);
+				}
+			}, 1);
+
+			for (int i=0;i<hours.length;i++) {
+				assertEquals(hours[i], TimeExtractor.parseTimes(hours[i]), results.get("venue-" + i));
+			}
+			assertTrue(results.get("venue-0").isKnown());
+		}
+		finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package timesparser;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class ConcurrentWeekIntervalsIndexUnitTest extends TestCase {
+	private static final String[] hours = {"Mon-Fri 9-5pm, Sat 10:30am-2am", "Daily 7:30am-11pm", "Sat 11pm-3am",
+			"Mon closed", "Tue-Thu 11-2:15pm, Tue-Thu 5-10pm"};
+
+	public void testOpenAtMatchesContains() {
+		Random random = new Random(99);
+		Map<Integer, WeekIntervals> expected = new HashMap<Integer, WeekIntervals>();
+		ConcurrentWeekIntervalsIndex<Integer> index = new ConcurrentWeekIntervalsIndex<Integer>();
+		for (int change=0;change<3000;change++) {
+			Integer venue = random.nextInt(400);
+			if (random.nextInt(4) == 0) {
+				assertEquals(expected.remove(venue) != null, index.remove(venue));
+			}
+			else {
+				WeekIntervals schedule = parse(hours[random.nextInt(hours.length)]);
+				expected.put(venue, schedule);
+				index.upsert(venue, schedule);
+			}
+		}
+
+		assertEquals(expected.size(), index.size());
+		assertOpenAtMatches(expected, index);
+	}
+
+	public void testBulkLoadMatchesUpserts() {
+		Map<Integer, WeekIntervals> schedules = new HashMap<Integer, WeekIntervals>();
+		for (int venue=0;venue<1000;venue++) {
+			schedules.put(venue, parse(hours[venue % hours.length]));
+		}
+
+		ConcurrentWeekIntervalsIndex<Integer> index = new ConcurrentWeekIntervalsIndex<Integer>(schedules);
+		assertEquals(schedules.size(), index.size());
+		assertOpenAtMatches(schedules, index);
+
+		// Still takes updates and new venues afterwards
+		for (int venue=500;venue<1500;venue++) {
+			schedules.put(venue, parse(hours[(venue + 1) % hours.length]));
+			index.upsert(venue, schedules.get(venue));
+		}
+		for (int venue=0;venue<1500;venue+=3) {
+			schedules.remove(venue);
+			index.remove(venue);
+		}
+		assertOpenAtMatches(schedules, index);
+	}
+
+	public void testUpsertReplaces() {
+		ConcurrentWeekIntervalsIndex<String> index = new ConcurrentWeekIntervalsIndex<String>();
+		index.upsert("cafe", parse("Mon 9-5pm"));
+		index.upsert("cafe", parse("Tue 9-5pm"));
+
+		assertEquals(1, index.size());
+		assertTrue(index.openAt(Calendar.MONDAY, 12, 0).isEmpty());
+		assertEquals(Collections.singletonList("cafe"), index.openAt(Calendar.TUESDAY, 12, 0));
+
+		assertTrue(index.remove("cafe"));
+		assertFalse(index.remove("cafe"));
+		assertEquals(0, index.size());
+	}
+
+	public void testReadersSeeEveryVenueOnceDuringUpdates() throws InterruptedException {
+		// Both schedules are open on Monday at noon, so every venue should be open then whichever one it has
+		final WeekIntervals[] schedules = {parse("Mon 9-5pm"), parse("Mon 10-4pm, Tue 9-5pm")};
+		final int venues = 200;
+		final int noon = WeekIntervals.minuteOfWeek(Calendar.MONDAY, 12, 0);
+		final ConcurrentWeekIntervalsIndex<Integer> index = new ConcurrentWeekIntervalsIndex<Integer>();
+		for (int venue=0;venue<venues;venue++) {
+			index.upsert(venue, schedules[0]);
+		}
+
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicReference<String> failure = new AtomicReference<String>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i=0;i<2;i++) {
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					while (!done.get()) {
+						List<Integer> open = index.openAt(noon);
+						if (open.size() != venues || new HashSet<Integer>(open).size() != venues) {
+							failure.compareAndSet(null, open.size() + " venues open");
+						}
+					}
+				}
+			});
+		}
+		threads.add(new Thread() {
+			@Override
+			public void run() {
+				Random random = new Random(5);
+				for (int change=0;change<5000;change++) {
+					index.upsert(random.nextInt(venues), schedules[random.nextInt(2)]);
+				}
+				done.set(true);
+			}
+		});
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(failure.get());
+	}
+
+	public void testRejectsNullIds() {
+		try {
+			new ConcurrentWeekIntervalsIndex<String>().upsert(null, parse("Mon 9-5pm"));
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	private static void assertOpenAtMatches(Map<Integer, WeekIntervals> expected, ConcurrentWeekIntervalsIndex<Integer> index) {
+		for (int minute=0;minute<WeekIntervals.MINUTES_PER_WEEK;minute+=7) {
+			List<Integer> open = new ArrayList<Integer>();
+			for (Map.Entry<Integer, WeekIntervals> entry : expected.entrySet()) {
+				if (entry.getValue().contains(minute)) {
+					open.add(entry.getKey());
+				}
+			}
+			List<Integer> actual = index.openAt(minute);
+			Collections.sort(open);
+			Collections.sort(actual);
+			assertEquals(Integer.toString(minute), open, actual);
+		}
+	}
+
+	private static WeekIntervals parse(String description) {
+		return TimeExtractor.parseTimes(description).iterator().next();
+	}
+}
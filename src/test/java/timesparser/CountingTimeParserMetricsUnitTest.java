@@ -0,0 +1,89 @@
+package timesparser;
+
+import timesparser.TimeParserMetrics.FailureCause;
+import junit.framework.TestCase;
+
+public class CountingTimeParserMetricsUnitTest extends TestCase {
+	private CountingTimeParserMetrics metrics;
+
+	@Override
+	protected void setUp() {
+		this.metrics = new CountingTimeParserMetrics();
+		TimeExtractor.setMetrics(this.metrics);
+	}
+
+	@Override
+	protected void tearDown() {
+		TimeExtractor.setMetrics(null);
+	}
+
+	public void testSuccess() {
+		assertTrue(TimeExtractor.parseTimes("Open Mon-Fri 9-5pm, Sat 10-2pm").isKnown());
+
+		assertEquals(1, this.metrics.getParseCount());
+		assertEquals(1, this.metrics.getSuccessCount());
+		assertEquals(5, this.metrics.getTokenCount());
+		// "Open " and the spaces between tokens
+		assertEquals(8, this.metrics.getSkippedCharCount());
+	}
+
+	public void testFailureCauses() {
+		assertFalse(TimeExtractor.parseTimes("call for hours").isKnown());
+		assertFalse(TimeExtractor.parseTimes("9-5pm").isKnown());
+		assertFalse(TimeExtractor.parseTimes("9-5pm, Mon 10-2pm").isKnown());
+		assertFalse(TimeExtractor.parseTimes("Mon, Tue 9-5pm").isKnown());
+
+		assertEquals(4, this.metrics.getParseCount());
+		assertEquals(0, this.metrics.getSuccessCount());
+		assertEquals(2, this.metrics.getFailureCount(FailureCause.NO_DAYS));
+		assertEquals(1, this.metrics.getFailureCount(FailureCause.MISSING_DAY));
+		assertEquals(1, this.metrics.getFailureCount(FailureCause.MISSING_TIME));
+	}
+
+	public void testPrefilteredParseCountsNothing() {
+		assertTrue(TimeExtractor.parseTimes("Open Mon-Fri 9-5pm, Sat 10-2pm").isKnown());
+		// Rejected before the scanner sees it, so none of the previous parse's counts should carry over
+		assertFalse(TimeExtractor.parseTimes("call for hours").isKnown());
+
+		assertEquals(1, this.metrics.getFailureCount(FailureCause.NO_DAYS));
+		assertEquals(5, this.metrics.getTokenCount());
+		assertEquals(8, this.metrics.getSkippedCharCount());
+	}
+
+	public void testLatencyHistogram() {
+		for (int i=0;i<10;i++) {
+			TimeExtractor.parseTimes("Mon-Fri 9-5pm");
+		}
+
+		long total = 0;
+		for (long count : this.metrics.getLatencyHistogram()) {
+			total += count;
+		}
+		assertEquals(10, total);
+	}
+
+	public void testLatencyBuckets() {
+		assertEquals(0, CountingTimeParserMetrics.latencyBucket(-5));
+		assertEquals(0, CountingTimeParserMetrics.latencyBucket(0));
+		assertEquals(1, CountingTimeParserMetrics.latencyBucket(1));
+		assertEquals(2, CountingTimeParserMetrics.latencyBucket(3));
+		assertEquals(11, CountingTimeParserMetrics.latencyBucket(1024));
+		assertEquals(63, CountingTimeParserMetrics.latencyBucket(Long.MAX_VALUE));
+	}
+
+	public void testContainsQueries() {
+		WeekIntervals intervals = TimeExtractor.parseTimes("Mon-Fri 9-5pm").otherwise((WeekIntervals) null);
+		intervals.contains(WeekIntervals.minuteOfWeek(2, 10, 0));
+		intervals.containsAll(new int[] {0, 1, 2});
+
+		assertEquals(4, this.metrics.getContainsQueryCount());
+	}
+
+	public void testNoopAfterReset() {
+		TimeExtractor.setMetrics(null);
+		TimeExtractor.parseTimes("Mon-Fri 9-5pm");
+
+		assertSame(TimeParserMetrics.NOOP, TimeExtractor.getMetrics());
+		assertEquals(0, this.metrics.getParseCount());
+	}
+}
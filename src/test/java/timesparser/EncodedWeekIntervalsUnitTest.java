@@ -0,0 +1,58 @@
+package timesparser;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+public class EncodedWeekIntervalsUnitTest extends TestCase {
+	private static final String[] schedules = {
+		"Mon-Fri 9-5pm, Sat 10:30am-2am", "Daily 7:30am-11pm", "Sat 11pm-3am", "Mon closed", "Mon 10-12am, Tue 10-2am",
+	};
+
+	public void testRoundTrip() {
+		for (String schedule : schedules) {
+			WeekIntervals intervals = TimeExtractor.parseTimes(schedule).iterator().next();
+			ByteBuffer buffer = ByteBuffer.allocate(intervals.encodedSize() + 3);
+			buffer.put((byte) 42);
+			intervals.writeTo(buffer);
+			assertEquals(schedule, 1 + intervals.encodedSize(), buffer.position());
+
+			buffer.flip();
+			buffer.get();
+			assertEquals(schedule, intervals, WeekIntervals.readFrom(buffer));
+			assertEquals(schedule, 1 + intervals.encodedSize(), buffer.position());
+		}
+	}
+
+	public void testViewContainsSameMinutes() {
+		for (String schedule : schedules) {
+			WeekIntervals intervals = TimeExtractor.parseTimes(schedule).iterator().next();
+			ByteBuffer buffer = ByteBuffer.allocate(intervals.encodedSize());
+			intervals.writeTo(buffer);
+			buffer.flip();
+
+			EncodedWeekIntervals view = EncodedWeekIntervals.wrap(buffer);
+			assertEquals(schedule, intervals, view.toWeekIntervals());
+			for (int minute=0;minute<WeekIntervals.MINUTES_PER_WEEK;minute++) {
+				assertEquals(schedule + " " + minute, intervals.contains(minute), view.contains(minute));
+			}
+			assertEquals(0, buffer.position());
+		}
+	}
+
+	public void testEncodingIsCompact() {
+		WeekIntervals intervals = TimeExtractor.parseTimes("Daily 7:30am-11pm").iterator().next();
+		// Version, count, then a two byte gap and a two byte length per day
+		assertEquals(2 + 7 * 4, intervals.encodedSize());
+	}
+
+	public void testRejectsUnknownVersion() {
+		try {
+			EncodedWeekIntervals.wrap(ByteBuffer.wrap(new byte[] {2, 0}));
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package timesparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class ScheduleStoreUnitTest extends TestCase {
+	public void testStoreMatchesSchedules() throws IOException {
+		String[] hours = {"Mon-Fri 9-5pm, Sat 10:30am-2am", "call for hours", "Daily 7:30am-11pm", "Sat 11pm-3am"};
+		List<WeekIntervals> schedules = new ArrayList<WeekIntervals>();
+		for (int i=0;i<20000;i++) {
+			schedules.add(TimeExtractor.parseTimes(hours[i % hours.length]).otherwise((WeekIntervals) null));
+		}
+
+		File file = File.createTempFile("schedules", ".store");
+		try {
+			ScheduleStore.write(file.toPath(), schedules);
+			try (ScheduleStore store = ScheduleStore.open(file.toPath())) {
+				assertEquals(schedules.size(), store.size());
+				for (int venue : new int[] {0, 1, 2, 3, 19996, 19997, 19998, 19999}) {
+					WeekIntervals schedule = schedules.get(venue);
+					assertEquals(schedule != null, store.hasSchedule(venue));
+					assertEquals(schedule != null, store.get(venue).isKnown());
+					for (int minute=0;minute<WeekIntervals.MINUTES_PER_WEEK;minute++) {
+						boolean expected = schedule != null && schedule.contains(minute);
+						int day = minute / WeekIntervals.MINUTES_PER_DAY + Calendar.SUNDAY;
+						assertEquals(expected, store.contains(venue, day, minute % WeekIntervals.MINUTES_PER_DAY));
+					}
+				}
+				assertEquals(schedules.get(2), store.get(2).iterator().next());
+			}
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	public void testWriteReplacesWithoutDisturbingOpenStores() throws IOException {
+		WeekIntervals monday = TimeExtractor.parseTimes("Mon 9-5pm").iterator().next();
+		WeekIntervals daily = TimeExtractor.parseTimes("Daily 7:30am-11pm").iterator().next();
+		File directory = Files.createTempDirectory("schedules").toFile();
+		File file = new File(directory, "venues.store");
+		try {
+			ScheduleStore.write(file.toPath(), Arrays.asList(monday, null));
+			try (ScheduleStore old = ScheduleStore.open(file.toPath())) {
+				ScheduleStore.write(file.toPath(), Arrays.asList(daily, daily, daily));
+				assertEquals(2, old.size());
+				assertEquals(monday, old.get(0).iterator().next());
+
+				try (ScheduleStore replaced = ScheduleStore.open(file.toPath())) {
+					assertEquals(3, replaced.size());
+					assertEquals(daily, replaced.get(0).iterator().next());
+				}
+			}
+			assertEquals(Collections.singletonList("venues.store"), Arrays.asList(directory.list()));
+		}
+		finally {
+			file.delete();
+			directory.delete();
+		}
+	}
+
+	public void testOpenRejectsCorruptOffsets() throws IOException {
+		WeekIntervals monday = TimeExtractor.parseTimes("Mon 9-5pm").iterator().next();
+		File file = File.createTempFile("schedules", ".store");
+		try {
+			ScheduleStore.write(file.toPath(), Arrays.asList(monday, monday));
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+				// The last offset, which should be where the data ends
+				ByteBuffer offset = ByteBuffer.allocate(4).putInt(0, 1 << 20);
+				channel.write(offset, 12 + 2 * 4);
+			}
+			ScheduleStore.open(file.toPath());
+			fail();
+		}
+		catch (IOException e) {
+			// Expected
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	public void testSaturdayOverflowRoundTrips() throws IOException {
+		for (String hours : new String[] {"Sat 9-15pm", "Sat 9am-19pm"}) {
+			WeekIntervals intervals = TimeExtractor.parseTimes(hours).iterator().next();
+			File file = File.createTempFile("schedules", ".store");
+			try {
+				ScheduleStore.write(file.toPath(), Collections.singletonList(intervals));
+				try (ScheduleStore store = ScheduleStore.open(file.toPath())) {
+					assertEquals(hours, intervals, store.get(0).iterator().next());
+					assertTrue(hours, store.contains(0, Calendar.SATURDAY, WeekIntervals.MINUTES_PER_DAY - 1));
+				}
+			}
+			finally {
+				file.delete();
+			}
+		}
+	}
+
+	public void testOpenRejectsOtherFiles() throws IOException {
+		File file = File.createTempFile("schedules", ".store");
+		try {
+			Files.write(file.toPath(), "not a store at all".getBytes("UTF-8"));
+			ScheduleStore.open(file.toPath());
+			fail();
+		}
+		catch (IOException e) {
+			// Expected
+		}
+		finally {
+			file.delete();
+		}
+	}
+}
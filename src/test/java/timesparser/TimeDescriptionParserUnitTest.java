@@ -27,10 +27,18 @@ public class TimeDescriptionParserUnitTest extends TestCase {
 		assertEquals(expectedParse, TimeDescriptionParser.parse(testSentence));
 	}
 
+	public void testParseSentenceSlice() {
+		String testSentence = "Mon-Sun 11-3pm, something irrelevant, Tue 9am - 11am";
+		String padded = "xx" + testSentence.toUpperCase() + "yy";
+
+		assertEquals(TimeDescriptionParser.parse(testSentence),
+				TimeDescriptionParser.parse(padded, 2, 2 + testSentence.length()));
+	}
+
 	public void testDayParsePositive() {
 		String sentence = "tue starts";
 		ParseResult<Day> result = Day.parse(sentence).iterator().next();
-		assertEquals(" starts", result.remainder);
+		assertEquals(" starts", sentence.substring(result.end));
 		assertEquals(Integer.valueOf(Calendar.TUESDAY), result.element.day);
 	}
 
@@ -42,7 +50,7 @@ public class TimeDescriptionParserUnitTest extends TestCase {
 	public void testDayRangeParsePositive() {
 		String sentence = "thur- sun starts";
 		ParseResult<DayRange> result = DayRange.parse(sentence).iterator().next();
-		assertEquals(" starts", result.remainder);
+		assertEquals(" starts", sentence.substring(result.end));
 		assertEquals(Integer.valueOf(Calendar.THURSDAY), result.element.startDay);
 		assertEquals(Integer.valueOf(Calendar.SUNDAY), result.element.endDay);
 	}
@@ -55,7 +63,7 @@ public class TimeDescriptionParserUnitTest extends TestCase {
 	public void testDayRangeParseDaily() {
 		String sentence = "daily starts";
 		ParseResult<DayRange> result = DayRange.parse(sentence).iterator().next();
-		assertEquals(" starts", result.remainder);
+		assertEquals(" starts", sentence.substring(result.end));
 		assertEquals(Integer.valueOf(Calendar.MONDAY), result.element.startDay);
 		assertEquals(Integer.valueOf(Calendar.SUNDAY), result.element.endDay);
 	}
@@ -63,7 +71,7 @@ public class TimeDescriptionParserUnitTest extends TestCase {
 	public void testTimeRangeParseFullySpecified() {
 		String sentence = "9:30am- 2pm starts";
 		ParseResult<TimeRange> result = TimeRange.parse(sentence).iterator().next();
-		assertEquals(" starts", result.remainder);
+		assertEquals(" starts", sentence.substring(result.end));
 		assertEquals(new LocalTime(9, 30), result.element.startTime);
 		assertEquals(new LocalTime(14, 0), result.element.endTime);
 	}
@@ -71,7 +79,7 @@ public class TimeDescriptionParserUnitTest extends TestCase {
 	public void testTimeRangeParseInferAm() {
 		String sentence = "9:30 -2pm starts";
 		ParseResult<TimeRange> result = TimeRange.parse(sentence).iterator().next();
-		assertEquals(" starts", result.remainder);
+		assertEquals(" starts", sentence.substring(result.end));
 		assertEquals(new LocalTime(9, 30), result.element.startTime);
 		assertEquals(new LocalTime(14, 0), result.element.endTime);
 	}
@@ -79,7 +87,7 @@ public class TimeDescriptionParserUnitTest extends TestCase {
 	public void testTimeRangeParseInferAfternoonPm() {
 		String sentence = "1- 2pm starts";
 		ParseResult<TimeRange> result = TimeRange.parse(sentence).iterator().next();
-		assertEquals(" starts", result.remainder);
+		assertEquals(" starts", sentence.substring(result.end));
 		assertEquals(new LocalTime(13, 0), result.element.startTime);
 		assertEquals(new LocalTime(14, 0), result.element.endTime);
 	}
@@ -87,7 +95,7 @@ public class TimeDescriptionParserUnitTest extends TestCase {
 	public void testTimeRangeParseInferNightPm() {
 		String sentence = "11- 2am starts";
 		ParseResult<TimeRange> result = TimeRange.parse(sentence).iterator().next();
-		assertEquals(" starts", result.remainder);
+		assertEquals(" starts", sentence.substring(result.end));
 		assertEquals(new LocalTime(23, 0), result.element.startTime);
 		assertEquals(new LocalTime(2, 0), result.element.endTime);
 	}
@@ -95,8 +103,34 @@ public class TimeDescriptionParserUnitTest extends TestCase {
 	public void testTimeRangeParseNoon() {
 		String sentence = "12 - 1pm starts";
 		ParseResult<TimeRange> result = TimeRange.parse(sentence).iterator().next();
-		assertEquals(" starts", result.remainder);
+		assertEquals(" starts", sentence.substring(result.end));
 		assertEquals(new LocalTime(12, 0), result.element.startTime);
 		assertEquals(new LocalTime(13, 0), result.element.endTime);
 	}
-}
\ No newline at end of file
+
+	public void testTimeRangeParseMinutesWithoutSeparator() {
+		String sentence = "1030-215pm starts";
+		ParseResult<TimeRange> result = TimeRange.parse(sentence).iterator().next();
+		assertEquals(" starts", sentence.substring(result.end));
+		assertEquals(new LocalTime(10, 30), result.element.startTime);
+		assertEquals(new LocalTime(14, 15), result.element.endTime);
+	}
+
+	public void testTimeRangeParseNotAtStart() {
+		assertFalse(TimeRange.parse("open 9-5pm").isKnown());
+	}
+
+	public void testMayContainDay() {
+		assertTrue(TimeDescriptionParser.mayContainDay("Open DAILY 9-5", 0, 14));
+		assertTrue(TimeDescriptionParser.mayContainDay("closed Sunday", 0, 13));
+		assertTrue(TimeDescriptionParser.mayContainDay("9-5pm mon", 0, 9));
+		// Day.parse doesn't need a word boundary before the day either
+		assertTrue(TimeDescriptionParser.mayContainDay("salmon, 9-5pm", 0, 13));
+
+		assertFalse(TimeDescriptionParser.mayContainDay("call for hours, see website", 0, 27));
+		assertFalse(TimeDescriptionParser.mayContainDay("9-5pm", 0, 5));
+		assertFalse(TimeDescriptionParser.mayContainDay("Mondays 9-5pm", 0, 13));
+		assertFalse(TimeDescriptionParser.mayContainDay("", 0, 0));
+		assertFalse(TimeDescriptionParser.mayContainDay("Sat 9-5pm", 1, 9));
+	}
+}
@@ -0,0 +1,54 @@
+package timesparser;
+
+import junit.framework.TestCase;
+
+public class TimeExtractorCacheUnitTest extends TestCase {
+	public void testCachedResultsMatchParse() {
+		TimeExtractorCache cache = new TimeExtractorCache(100);
+		String[] inputs = {"Mon-Fri 9-5pm", "Daily 11-10pm", "Mon-Fri 9-5pm", "call for hours", "call for hours"};
+		for (String input : inputs) {
+			Maybe<WeekIntervals> expected = TimeExtractor.parseTimes(input);
+			Maybe<WeekIntervals> actual = cache.parseTimes(input);
+			assertEquals(input, expected.isKnown(), actual.isKnown());
+			if (expected.isKnown()) {
+				assertEquals(input, expected, actual);
+			}
+		}
+
+		assertEquals(2, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+		assertEquals(3, cache.size());
+	}
+
+	public void testEvictsLeastRecentlyUsed() {
+		TimeExtractorCache cache = new TimeExtractorCache(1);
+		cache.parseTimes("Mon 9-5pm");
+		cache.parseTimes("Tue 9-5pm");
+		cache.parseTimes("Mon 9-5pm");
+
+		assertEquals(1, cache.size());
+		assertEquals(2, cache.getEvictionCount());
+		assertEquals(3, cache.getMissCount());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	public void testNeverExceedsMaximumSize() {
+		TimeExtractorCache cache = new TimeExtractorCache(20);
+		for (int i=0;i<100;i++) {
+			cache.parseTimes("Mon 9-" + (i % 12 + 1) + "pm " + i);
+		}
+
+		assertTrue(cache.size() <= 20);
+		assertEquals(100, cache.size() + cache.getEvictionCount());
+	}
+
+	public void testRejectsNonPositiveSize() {
+		try {
+			new TimeExtractorCache(0);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+}
@@ -1,8 +1,13 @@
 package timesparser;
 
+import java.lang.ref.WeakReference;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import junit.framework.TestCase;
 import timesparser.WeekIntervals.DayLocalInterval;
@@ -50,6 +55,146 @@ public class TimeExtractorUnitTest extends TestCase {
 		}
 	}
 
+	public void testExtractFromSlice() {
+		String hours = "Mon 8am-5:30pm, Fri 7:30am-4pm";
+		CharBuffer buffer = CharBuffer.wrap("venue-1\t" + hours.toUpperCase() + "\n");
+		Maybe<WeekIntervals> expected = TimeExtractor.parseTimes(hours);
+		Maybe<WeekIntervals> actual = TimeExtractor.parseTimes(buffer, 8, 8 + hours.length());
+
+		assertTrue(actual.isKnown());
+		assertEquals(expected, actual);
+	}
+
+	public void testExtractFromSliceOutOfBounds() {
+		try {
+			TimeExtractor.parseTimes("Mon 8am-5:30pm", 4, 20);
+			fail();
+		}
+		catch (IndexOutOfBoundsException e) {
+			// Expected
+		}
+	}
+
+	public void testHoursPastMidnightStayOnTheirDay() {
+		WeekIntervals evening = TimeExtractor.parseTimes("Mon 9-15pm").otherwise((WeekIntervals) null);
+		assertEquals(buildIntervals(buildCase(Calendar.MONDAY,21,0,23,59)).otherwise((WeekIntervals) null), evening);
+		assertTrue(evening.contains(WeekIntervals.minuteOfWeek(Calendar.MONDAY, 23, 59)));
+		assertFalse(evening.contains(WeekIntervals.minuteOfWeek(Calendar.TUESDAY, 1, 0)));
+
+		WeekIntervals overnight = TimeExtractor.parseTimes("Mon 13pm-5am").otherwise((WeekIntervals) null);
+		assertEquals(buildIntervals(buildCase(Calendar.TUESDAY,0,0,5,0)).otherwise((WeekIntervals) null), overnight);
+		assertFalse(overnight.contains(WeekIntervals.minuteOfWeek(Calendar.MONDAY, 23, 0)));
+	}
+
+	public void testDoesNotKeepDescriptions() throws InterruptedException {
+		// Prefiltered, missing a day, missing a time, and parsed into a sink
+		String[] descriptions = {"call for hours", "9-5pm", "Mon, Tue 9-5pm", "Mon 9-5pm"};
+		List<WeakReference<CharSequence>> references = new ArrayList<WeakReference<CharSequence>>();
+		for (String description : descriptions) {
+			CharSequence times = new StringBuilder(description);
+			references.add(new WeakReference<CharSequence>(times));
+			TimeExtractor.parseTimes(times, 0, times.length());
+			TimeExtractor.parseTimes(times, 0, times.length(), new IntervalSink() {
+				public void accept(int startMinuteOfWeek, int endMinuteOfWeek) {}
+			});
+		}
+
+		for (int attempt=0;attempt<50 && !allCleared(references);attempt++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		for (int i=0;i<descriptions.length;i++) {
+			assertNull(descriptions[i], references.get(i).get());
+		}
+	}
+
+	private static boolean allCleared(List<WeakReference<CharSequence>> references) {
+		for (WeakReference<CharSequence> reference : references) {
+			if (reference.get() != null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public void testParseIntoSink() {
+		String hours = "Mon-Wed 11pm-2am, Tue 9-5pm, Sat closed, Sun";
+		final WeekIntervals.Builder received = new WeekIntervals.Builder();
+		final int[] calls = new int[1];
+		int status = TimeExtractor.parseTimes(hours, 0, hours.length(), new IntervalSink() {
+			public void accept(int startMinuteOfWeek, int endMinuteOfWeek) {
+				received.add(startMinuteOfWeek, endMinuteOfWeek);
+				calls[0]++;
+			}
+		});
+
+		WeekIntervals expected = TimeExtractor.parseTimes(hours).otherwise((WeekIntervals) null);
+		assertEquals(TimeExtractor.PARSED, status);
+		assertEquals(expected, received.build());
+		assertEquals(expected.intervalCount(), calls[0]);
+	}
+
+	public void testParseIntoSinkFailures() {
+		IntervalSink unused = new IntervalSink() {
+			public void accept(int startMinuteOfWeek, int endMinuteOfWeek) {
+				fail();
+			}
+		};
+		assertEquals(TimeExtractor.NO_DAYS, TimeExtractor.parseTimes("call for hours", 0, 14, unused));
+		assertEquals(TimeExtractor.MISSING_DAY, TimeExtractor.parseTimes("9-5pm, Mon", 0, 10, unused));
+		// The first chunk would have parsed, but the sink mustn't see it
+		assertEquals(TimeExtractor.MISSING_TIME, TimeExtractor.parseTimes("Mon 9-5pm, Tue, Wed", 0, 19, unused));
+	}
+
+	public void testParseFromInsideSink() {
+		final String inner = "Sat-Sun 10-4pm";
+		final WeekIntervals[] innerResult = new WeekIntervals[1];
+		final WeekIntervals.Builder outer = new WeekIntervals.Builder();
+		int status = TimeExtractor.parseTimes("Mon-Fri 9-5pm", 0, 13, new IntervalSink() {
+			public void accept(int startMinuteOfWeek, int endMinuteOfWeek) {
+				innerResult[0] = TimeExtractor.parseTimes(inner).otherwise((WeekIntervals) null);
+				outer.add(startMinuteOfWeek, endMinuteOfWeek);
+			}
+		});
+
+		assertEquals(TimeExtractor.PARSED, status);
+		assertEquals(TimeExtractor.parseTimes("Mon-Fri 9-5pm").otherwise((WeekIntervals) null), outer.build());
+		assertEquals(TimeExtractor.parseTimes(inner).otherwise((WeekIntervals) null), innerResult[0]);
+	}
+
+	public void testParseAllKeepsOrder() {
+		String[] inputs = new String[1000];
+		for (int i=0;i<inputs.length;i++) {
+			inputs[i] = (i % 7 == 0) ? "see website" : "Mon-Fri " + (i % 5 + 7) + "-" + (i % 6 + 1) + "pm";
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			List<List<Maybe<WeekIntervals>>> batches = Arrays.asList(
+				TimeExtractor.parseAll(inputs),
+				TimeExtractor.parseAll(Arrays.asList(inputs), pool),
+				TimeExtractor.parseAll(Arrays.stream(inputs), pool));
+			for (List<Maybe<WeekIntervals>> batch : batches) {
+				assertEquals(inputs.length, batch.size());
+				for (int i=0;i<inputs.length;i++) {
+					Maybe<WeekIntervals> expected = TimeExtractor.parseTimes(inputs[i]);
+					assertEquals(inputs[i], expected.isKnown(), batch.get(i).isKnown());
+					if (expected.isKnown()) {
+						assertEquals(inputs[i], expected, batch.get(i));
+					}
+				}
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	public void testParseAllSharesDuplicates() {
+		List<Maybe<WeekIntervals>> results = TimeExtractor.parseAll(new String[] {"Mon 9-5pm", "Tue 9-5pm", "Mon 9-5pm"});
+		assertSame(results.get(0), results.get(2));
+	}
+
 	private static Maybe<WeekIntervals> buildIntervals(DayLocalInterval... intervals) {
 		WeekIntervals wi = new WeekIntervals();
 		for (DayLocalInterval interval : intervals) {
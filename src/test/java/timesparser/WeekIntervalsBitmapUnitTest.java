@@ -0,0 +1,47 @@
+package timesparser;
+
+import java.util.Calendar;
+
+import junit.framework.TestCase;
+import timesparser.WeekIntervals.DayLocalInterval;
+import timesparser.WeekIntervals.DayLocalTime;
+
+public class WeekIntervalsBitmapUnitTest extends TestCase {
+	public void testBitmapContainsSameMinutes() {
+		String[] schedules = {"Mon-Fri 9-5pm, Sat 10:30am-2am", "Daily 7:30am-11pm", "Sun 11pm-3am", "Mon closed"};
+		for (String schedule : schedules) {
+			WeekIntervals intervals = TimeExtractor.parseTimes(schedule).iterator().next();
+			WeekIntervalsBitmap bitmap = intervals.toBitmap();
+			for (int minute=0;minute<WeekIntervals.MINUTES_PER_WEEK;minute++) {
+				DayLocalTime time = DayLocalTime.fromMinuteOfWeek(minute);
+				assertEquals(schedule + " " + time, intervals.contains(time), bitmap.contains(minute));
+			}
+		}
+	}
+
+	public void testBitmapContainsCalendar() {
+		final DayLocalTime monday9am = new DayLocalTime(Calendar.MONDAY, new LocalTime(9, 0));
+		final DayLocalTime monday9pm = new DayLocalTime(Calendar.MONDAY, new LocalTime(21, 0));
+		final WeekIntervalsBitmap bitmap = new WeekIntervals().add(new DayLocalInterval(monday9am, monday9pm)).toBitmap();
+
+		assertTrue(bitmap.contains(toCalendar(Calendar.MONDAY, 9, 0)));
+		assertTrue(bitmap.contains(toCalendar(Calendar.MONDAY, 21, 0)));
+		assertFalse(bitmap.contains(toCalendar(Calendar.MONDAY, 21, 1)));
+		assertFalse(bitmap.contains(toCalendar(Calendar.TUESDAY, 9, 0)));
+	}
+
+	public void testBitmapRoundTrip() {
+		WeekIntervals intervals = TimeExtractor.parseTimes("Mon-Fri 9-5pm, Sat 10:30am-2am").iterator().next();
+		assertEquals(intervals, intervals.toBitmap().toIntervals());
+		assertEquals(intervals.toBitmap(), intervals.toBitmap().toIntervals().toBitmap());
+	}
+
+	private Calendar toCalendar(Integer day, Integer hour, Integer minute) {
+		Calendar cal = Calendar.getInstance();
+		cal.set(Calendar.DAY_OF_WEEK, day);
+		cal.set(Calendar.HOUR_OF_DAY, hour);
+		cal.set(Calendar.MINUTE, minute);
+
+		return cal;
+	}
+}
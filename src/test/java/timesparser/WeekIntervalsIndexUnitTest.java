@@ -0,0 +1,51 @@
+package timesparser;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class WeekIntervalsIndexUnitTest extends TestCase {
+	public void testOpenAtMatchesContains() {
+		String[] hours = {"Mon-Fri 9-5pm, Sat 10:30am-2am", "Daily 7:30am-11pm", "Sat 11pm-3am", "Mon closed",
+				"Tue-Thu 11-2:15pm, Tue-Thu 5-10pm"};
+		List<WeekIntervals> schedules = new ArrayList<WeekIntervals>();
+		WeekIntervalsIndex.Builder<String> builder = new WeekIntervalsIndex.Builder<String>();
+		for (int i=0;i<50;i++) {
+			WeekIntervals schedule = TimeExtractor.parseTimes(hours[i % hours.length]).iterator().next();
+			schedules.add(schedule);
+			builder.add("venue-" + i, schedule);
+		}
+		WeekIntervalsIndex<String> index = builder.build();
+
+		assertEquals(50, index.size());
+		for (int minute=0;minute<WeekIntervals.MINUTES_PER_WEEK;minute++) {
+			List<String> expected = new ArrayList<String>();
+			for (int i=0;i<schedules.size();i++) {
+				if (schedules.get(i).contains(minute)) {
+					expected.add("venue-" + i);
+				}
+			}
+			assertEquals(Integer.toString(minute), expected, index.openAt(minute));
+		}
+	}
+
+	public void testOpenAtCalendar() {
+		WeekIntervals schedule = TimeExtractor.parseTimes("Mon 9-5pm").iterator().next();
+		WeekIntervalsIndex<Integer> index = new WeekIntervalsIndex.Builder<Integer>().add(7, schedule).build();
+
+		Calendar cal = Calendar.getInstance();
+		cal.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+		cal.set(Calendar.HOUR_OF_DAY, 17);
+		cal.set(Calendar.MINUTE, 0);
+		assertEquals(1, index.openAt(cal).size());
+		assertEquals(Integer.valueOf(7), index.openAt(cal).get(0));
+		assertTrue(index.openAt(Calendar.MONDAY, 17, 1).isEmpty());
+	}
+
+	public void testEmptyIndex() {
+		WeekIntervalsIndex<String> index = new WeekIntervalsIndex.Builder<String>().build();
+		assertTrue(index.openAt(Calendar.MONDAY, 12, 0).isEmpty());
+	}
+}
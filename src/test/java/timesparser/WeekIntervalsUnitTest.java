@@ -1,6 +1,12 @@
 package timesparser;
 
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.BitSet;
 import java.util.Calendar;
+import java.util.Random;
 
 import junit.framework.TestCase;
 import timesparser.WeekIntervals.DayLocalInterval;
@@ -52,4 +58,242 @@ public class WeekIntervalsUnitTest extends TestCase {
 
 		assertNotSame(new WeekIntervals().add(earlyInterval), new WeekIntervals().add(lateInterval));
 	}
-}
\ No newline at end of file
+
+	public void testIntervalsMergeSpansSeveral() {
+		WeekIntervals actual = new WeekIntervals()
+			.add(mondayInterval(15, 16))
+			.add(mondayInterval(9, 10))
+			.add(mondayInterval(12, 13))
+			.add(mondayInterval(18, 19))
+			.add(mondayInterval(10, 15));
+
+		WeekIntervals expected = new WeekIntervals().add(mondayInterval(9, 16)).add(mondayInterval(18, 19));
+		assertEquals(expected, actual);
+		assertTrue(actual.contains(this.dltToCalendar(Calendar.MONDAY, 12, 30)));
+		assertFalse(actual.contains(this.dltToCalendar(Calendar.MONDAY, 17, 0)));
+		assertTrue(actual.contains(this.dltToCalendar(Calendar.MONDAY, 19, 0)));
+	}
+
+	public void testIntervalsAddContainedIsNoop() {
+		WeekIntervals intervals = new WeekIntervals().add(mondayInterval(9, 17));
+		assertSame(intervals, intervals.add(mondayInterval(10, 11)));
+	}
+
+	private static DayLocalInterval mondayInterval(Integer startHour, Integer endHour) {
+		return new DayLocalInterval(new DayLocalTime(Calendar.MONDAY, new LocalTime(startHour, 0)),
+				new DayLocalTime(Calendar.MONDAY, new LocalTime(endHour, 0)));
+	}
+
+	public void testBuilderMatchesAdd() {
+		DayLocalInterval[] intervals = {
+			mondayInterval(15, 16), mondayInterval(9, 10), mondayInterval(12, 13), mondayInterval(18, 19),
+			mondayInterval(10, 15), mondayInterval(11, 12),
+		};
+
+		WeekIntervals added = new WeekIntervals();
+		WeekIntervals.Builder builder = new WeekIntervals.Builder();
+		for (DayLocalInterval interval : intervals) {
+			added = added.add(interval);
+			builder.add(interval);
+		}
+
+		assertEquals(added, builder.build());
+		assertEquals(new WeekIntervals(), new WeekIntervals.Builder().build());
+	}
+
+	public void testPackedIntervals() {
+		long early = DayLocalInterval.pack(600, 700);
+		long late = DayLocalInterval.pack(650, 660);
+		assertEquals(600, DayLocalInterval.startOf(early));
+		assertEquals(700, DayLocalInterval.endOf(early));
+		assertTrue(early < late);
+		assertTrue(DayLocalInterval.intersects(early, late));
+		assertFalse(DayLocalInterval.intersects(early, DayLocalInterval.pack(701, 800)));
+
+		DayLocalInterval interval = mondayInterval(9, 17);
+		assertEquals(interval, DayLocalInterval.fromMinutesOfWeek(interval.getStartMinute(), interval.getEndMinute()));
+		assertTrue(interval.contains(new DayLocalTime(Calendar.MONDAY, new LocalTime(17, 0))));
+		assertFalse(interval.contains(new DayLocalTime(Calendar.TUESDAY, new LocalTime(12, 0))));
+	}
+
+	public void testRejectsIntervalsOutsideADay() {
+		int[][] invalid = {{-1, 10}, {600, 500}, {1400, 1500}, {WeekIntervals.MINUTES_PER_WEEK - 10, WeekIntervals.MINUTES_PER_WEEK}};
+		for (int[] interval : invalid) {
+			try {
+				new WeekIntervals.Builder().add(interval[0], interval[1]);
+				fail(interval[0] + "-" + interval[1]);
+			}
+			catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	public void testSaturdayOverflowRoundTrips() {
+		for (String hours : new String[] {"Sat 9-15pm", "Sat 9am-19pm"}) {
+			WeekIntervals intervals = TimeExtractor.parseTimes(hours).iterator().next();
+			int lastMinute = WeekIntervals.MINUTES_PER_WEEK - 1;
+			assertTrue(hours, intervals.contains(lastMinute));
+			assertTrue(hours, intervals.toBitmap().contains(lastMinute));
+			assertTrue(hours, intervals.containsAll(new int[] {0, lastMinute}).get(1));
+
+			ByteBuffer buffer = ByteBuffer.allocate(intervals.encodedSize());
+			intervals.writeTo(buffer);
+			buffer.flip();
+			assertEquals(hours, intervals, WeekIntervals.readFrom(buffer));
+		}
+	}
+
+	public void testInternSharesEqualInstances() {
+		WeekIntervals first = TimeExtractor.parseTimes("Mon-Fri 9-5pm, Sat 10-2pm").iterator().next();
+		WeekIntervals second = TimeExtractor.parseTimes("Mon-Fri 9-5pm, Sat 10-2pm").iterator().next();
+		WeekIntervals other = TimeExtractor.parseTimes("Mon-Fri 9-6pm").iterator().next();
+
+		assertNotSame(first, second);
+		assertSame(first.intern(), second.intern());
+		assertEquals(first, first.intern());
+		assertNotSame(first.intern(), other.intern());
+	}
+
+	public void testNextOpeningAndClosing() {
+		WeekIntervals intervals = TimeExtractor.parseTimes("Mon-Fri 9-5pm").iterator().next();
+		// 2024-01-01 was a Monday
+		LocalDateTime monday840 = LocalDateTime.of(2024, 1, 1, 8, 40, 30);
+
+		assertEquals(LocalDateTime.of(2024, 1, 1, 9, 0), intervals.nextOpening(monday840).iterator().next());
+		assertEquals(LocalDateTime.of(2024, 1, 1, 17, 0), intervals.nextClosing(monday840).iterator().next());
+		assertEquals(LocalDateTime.of(2024, 1, 2, 9, 0),
+				intervals.nextOpening(LocalDateTime.of(2024, 1, 1, 9, 0)).iterator().next());
+		assertEquals(LocalDateTime.of(2024, 1, 8, 9, 0),
+				intervals.nextOpening(LocalDateTime.of(2024, 1, 5, 12, 0)).iterator().next());
+	}
+
+	public void testNextClosingJoinsOvernight() {
+		WeekIntervals sunday = TimeExtractor.parseTimes("Sun 10pm-3am").iterator().next();
+		// 2024-01-07 was a Sunday
+		assertEquals(LocalDateTime.of(2024, 1, 8, 3, 0),
+				sunday.nextClosing(LocalDateTime.of(2024, 1, 7, 23, 0)).iterator().next());
+		assertEquals(LocalDateTime.of(2024, 1, 14, 22, 0),
+				sunday.nextOpening(LocalDateTime.of(2024, 1, 7, 23, 0)).iterator().next());
+
+		// Saturday night runs over the end of Calendar's week
+		WeekIntervals saturday = TimeExtractor.parseTimes("Sat 10pm-3am").iterator().next();
+		assertEquals(LocalDateTime.of(2024, 1, 7, 3, 0),
+				saturday.nextClosing(LocalDateTime.of(2024, 1, 6, 23, 0)).iterator().next());
+		assertEquals(LocalDateTime.of(2024, 1, 13, 22, 0),
+				saturday.nextOpening(LocalDateTime.of(2024, 1, 7, 1, 0)).iterator().next());
+	}
+
+	public void testNextOpeningCalendarAndZoned() {
+		WeekIntervals intervals = TimeExtractor.parseTimes("Mon-Fri 9-5pm").iterator().next();
+		Calendar monday840 = this.dltToCalendar(Calendar.MONDAY, 8, 40);
+		Calendar opening = intervals.nextOpening(monday840).iterator().next();
+		assertEquals(Calendar.MONDAY, opening.get(Calendar.DAY_OF_WEEK));
+		assertEquals(9, opening.get(Calendar.HOUR_OF_DAY));
+		assertEquals(0, opening.get(Calendar.MINUTE));
+		assertEquals(monday840.get(Calendar.DAY_OF_YEAR), opening.get(Calendar.DAY_OF_YEAR));
+
+		ZonedDateTime zoned = ZonedDateTime.of(2024, 1, 1, 8, 40, 0, 0, ZoneId.of("Europe/London"));
+		assertEquals(zoned.withHour(9).withMinute(0), intervals.nextOpening(zoned).iterator().next());
+	}
+
+	public void testNoTransitions() {
+		LocalDateTime time = LocalDateTime.of(2024, 1, 1, 12, 0);
+		assertFalse(new WeekIntervals().nextOpening(time).isKnown());
+		assertFalse(new WeekIntervals().nextClosing(time).isKnown());
+
+		WeekIntervals always = TimeExtractor.parseTimes("Daily").iterator().next();
+		assertFalse(always.nextOpening(time).isKnown());
+		assertFalse(always.nextClosing(time).isKnown());
+	}
+
+	public void testContainsJavaTime() {
+		WeekIntervals intervals = TimeExtractor.parseTimes("Mon-Fri 9-5pm").iterator().next();
+		// 2024-01-01 was a Monday
+		assertTrue(intervals.contains(LocalDateTime.of(2024, 1, 1, 9, 0)));
+		assertFalse(intervals.contains(LocalDateTime.of(2024, 1, 6, 9, 0)));
+
+		ZonedDateTime mondayInNewYork = ZonedDateTime.of(2024, 1, 1, 16, 30, 0, 0, ZoneId.of("America/New_York"));
+		assertTrue(intervals.contains(mondayInNewYork));
+		assertTrue(intervals.contains(mondayInNewYork.toInstant().toEpochMilli(), mondayInNewYork.getZone()));
+		assertFalse(intervals.contains(mondayInNewYork.toInstant().toEpochMilli(), ZoneId.of("Europe/London")));
+	}
+
+	public void testSetOperationsMatchContains() {
+		Random random = new Random(1234);
+		for (int round=0;round<200;round++) {
+			WeekIntervals first = randomIntervals(random);
+			WeekIntervals second = randomIntervals(random);
+			WeekIntervals union = first.union(second);
+			WeekIntervals intersection = first.intersect(second);
+			WeekIntervals difference = first.subtract(second);
+
+			boolean overlapping = false;
+			for (int minute=0;minute<WeekIntervals.MINUTES_PER_WEEK;minute++) {
+				boolean inFirst = first.contains(minute);
+				boolean inSecond = second.contains(minute);
+				assertEquals(inFirst || inSecond, union.contains(minute));
+				assertEquals(inFirst && inSecond, intersection.contains(minute));
+				assertEquals(inFirst && !inSecond, difference.contains(minute));
+				overlapping |= inFirst && inSecond;
+			}
+			assertEquals(overlapping, first.overlaps(second));
+
+			WeekIntervals added = first;
+			for (int i=0;i<second.intervalCount();i++) {
+				added = added.add(DayLocalInterval.fromMinutesOfWeek(second.startMinute(i), second.endMinute(i)));
+			}
+			assertEquals(added, union);
+		}
+	}
+
+	public void testKitchenAndBar() {
+		WeekIntervals kitchen = TimeExtractor.parseTimes("Mon-Fri 11-2pm, Mon-Fri 5-9pm").iterator().next();
+		WeekIntervals bar = TimeExtractor.parseTimes("Mon-Sat 4pm-1am").iterator().next();
+
+		assertEquals(TimeExtractor.parseTimes("Mon-Fri 4-9pm").iterator().next().intersect(kitchen), kitchen.intersect(bar));
+		assertTrue(kitchen.overlaps(bar));
+		assertFalse(kitchen.subtract(bar).overlaps(bar));
+	}
+
+	private static WeekIntervals randomIntervals(Random random) {
+		WeekIntervals.Builder builder = new WeekIntervals.Builder();
+		int count = random.nextInt(12);
+		for (int i=0;i<count;i++) {
+			int day = random.nextInt(7);
+			int start = random.nextInt(WeekIntervals.MINUTES_PER_DAY);
+			int end = start + random.nextInt(WeekIntervals.MINUTES_PER_DAY - start);
+			int dayStart = day * WeekIntervals.MINUTES_PER_DAY;
+			builder.add(DayLocalInterval.fromMinutesOfWeek(dayStart + start, dayStart + end));
+		}
+		return builder.build();
+	}
+
+	public void testContainsAll() {
+		WeekIntervals intervals = TimeExtractor.parseTimes("Mon-Fri 9-5pm, Sat 10pm-2am").iterator().next();
+		int[] minutes = new int[WeekIntervals.MINUTES_PER_WEEK / 5];
+		for (int i=0;i<minutes.length;i++) {
+			minutes[i] = (i * 5 * 7) % WeekIntervals.MINUTES_PER_WEEK;
+		}
+
+		BitSet result = intervals.containsAll(minutes);
+		for (int i=0;i<minutes.length;i++) {
+			assertEquals(Integer.toString(minutes[i]), intervals.contains(minutes[i]), result.get(i));
+		}
+	}
+
+	public void testContainsAllEpochMillis() {
+		WeekIntervals intervals = TimeExtractor.parseTimes("Mon-Fri 9-5pm, Sat 10pm-2am").iterator().next();
+		ZoneId zone = ZoneId.of("Europe/Paris");
+		long start = ZonedDateTime.of(2024, 3, 1, 0, 0, 0, 0, zone).toInstant().toEpochMilli();
+		long[] times = new long[31 * 24 * 12];
+		for (int i=0;i<times.length;i++) {
+			times[i] = start + i * 5 * 60000L;
+		}
+
+		BitSet result = intervals.containsAll(times, zone);
+		for (int i=0;i<times.length;i++) {
+			assertEquals(Long.toString(times[i]), intervals.contains(times[i], zone), result.get(i));
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package timesparser;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import junit.framework.TestCase;
+
+public class ZoneOffsetCacheUnitTest extends TestCase {
+	public void testMatchesJavaTime() {
+		String[] zones = {"UTC", "Europe/London", "America/New_York", "Australia/Lord_Howe", "Asia/Kolkata", "+05:45"};
+		// Every 7 hours and a bit across a few years, hitting plenty of daylight saving changes in both directions
+		for (String zoneName : zones) {
+			ZoneId zone = ZoneId.of(zoneName);
+			for (long millis = -86400000L * 400; millis < 86400000L * 365 * 3; millis += 7 * 3600000L + 1234) {
+				ZonedDateTime expected = Instant.ofEpochMilli(millis).atZone(zone);
+				assertEquals(zoneName + " " + expected, WeekIntervals.minuteOfWeek(expected.toLocalDateTime()),
+						ZoneOffsetCache.minuteOfWeek(millis, zone));
+			}
+		}
+	}
+
+	public void testTransitionInstants() {
+		ZoneId zone = ZoneId.of("Europe/London");
+		// 2024-03-31T01:00Z clocks went forward, 2024-10-27T01:00Z they went back
+		long[] transitions = {Instant.parse("2024-03-31T01:00:00Z").toEpochMilli(),
+				Instant.parse("2024-10-27T01:00:00Z").toEpochMilli()};
+		for (long transition : transitions) {
+			for (long millis = transition - 2000; millis <= transition + 2000; millis += 500) {
+				ZonedDateTime expected = Instant.ofEpochMilli(millis).atZone(zone);
+				assertEquals(expected.toString(), WeekIntervals.minuteOfWeek(expected.toLocalDateTime()),
+						ZoneOffsetCache.minuteOfWeek(millis, zone));
+			}
+		}
+	}
+}